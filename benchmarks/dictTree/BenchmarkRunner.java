@@ -0,0 +1,26 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+public class BenchmarkRunner {
+
+    /**
+     * Runs the dictionary benchmarks with the GC profiler, which adds the
+     * allocation rate (gc.alloc.rate.norm is bytes per operation) to every result.
+     * The usual JMH options can be given, e.g. "-p words=100000 LookupBenchmark.predict".
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options).addProfiler(GCProfiler.class);
+        if (options.getIncludes().isEmpty())
+            builder.include("benchmarks\\.dictTree\\..*");
+
+        new Runner(builder.build()).run();
+    }
+}
@@ -0,0 +1,55 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.annotations.*;
+import src.dictTree.DictionaryTree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The statistics computed by folding the whole tree, and listing all words
+ * eagerly and lazily.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FoldBenchmark {
+
+    @Param({"10000", "50000", "100000"})
+    int words;
+
+    private DictionaryTree dictionary;
+
+    @Setup
+    public void build() {
+        dictionary = WordFile.dictionary(WordFile.words(words));
+    }
+
+    @Benchmark
+    public int size() {
+        return dictionary.size();
+    }
+
+    @Benchmark
+    public int height() {
+        return dictionary.height();
+    }
+
+    @Benchmark
+    public int numLeaves() {
+        return dictionary.numLeaves();
+    }
+
+    @Benchmark
+    public List<String> allWords() {
+        return dictionary.allWords();
+    }
+
+    @Benchmark
+    public long words() {
+        return dictionary.words().count();
+    }
+}
@@ -0,0 +1,53 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.annotations.*;
+import src.dictTree.DictionaryTree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * insert(word, popularity), both building a new dictionary and changing the
+ * popularity of words already in one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InsertBenchmark {
+
+    @Param({"10000", "50000", "100000"})
+    int words;
+
+    private List<String> wordList;
+    private DictionaryTree dictionary;
+    private int next;
+
+    @Setup
+    public void build() {
+        wordList = WordFile.words(words);
+        dictionary = WordFile.dictionary(wordList);
+    }
+
+    /**
+     * Inserts all words into a new dictionary; the time is for all of them.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public DictionaryTree insertAll() {
+        return WordFile.dictionary(wordList);
+    }
+
+    /**
+     * Inserts the next word again with a new popularity, which refreshes the
+     * caches on its path like inserting a new word does.
+     */
+    @Benchmark
+    public void insertExisting() {
+        int index = next;
+        next = index + 1 == wordList.size() ? 0 : index + 1;
+        dictionary.insert(wordList.get(index), WordFile.popularity(index) + (next & 1));
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.annotations.*;
+import src.WordAutoComplete;
+import src.dictTree.DictionaryTree;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a word file with {@link WordAutoComplete#loadWords(File)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({"10000", "50000", "100000"})
+    int words;
+
+    private File file;
+
+    @Setup
+    public void writeFile() throws IOException {
+        file = File.createTempFile("words", ".txt");
+        Files.write(file.toPath(), WordFile.words(words), StandardCharsets.UTF_8);
+    }
+
+    @TearDown
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Benchmark
+    public DictionaryTree loadWords() throws IOException {
+        return WordAutoComplete.loadWords(file);
+    }
+}
@@ -0,0 +1,81 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.annotations.*;
+import src.dictTree.DictionaryTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * contains and predict on a dictionary of the first words of the word file. Both
+ * go through the words (or their prefixes) in file order, so popular words are
+ * not favoured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({"10000", "50000", "100000"})
+    int words;
+
+    private String[] wordArray;
+    private DictionaryTree dictionary;
+    private int nextWord;
+
+    @Setup
+    public void build() {
+        List<String> wordList = WordFile.words(words);
+        wordArray = wordList.toArray(new String[0]);
+        dictionary = WordFile.dictionary(wordList);
+    }
+
+    /**
+     * The prefixes predicted: the first prefixLength letters of every word which
+     * has that many.
+     */
+    @State(Scope.Benchmark)
+    public static class Prefixes {
+
+        @Param({"1", "2", "3", "4", "5", "6"})
+        int prefixLength;
+
+        @Param({"5", "20"})
+        int n;
+
+        private String[] prefixes;
+        private int next;
+
+        @Setup
+        public void cut(LookupBenchmark benchmark) {
+            List<String> prefixList = new ArrayList<>();
+            for (String word : benchmark.wordArray) {
+                if (word.length() >= prefixLength)
+                    prefixList.add(word.substring(0, prefixLength));
+            }
+            prefixes = prefixList.toArray(new String[0]);
+        }
+
+        String next() {
+            String prefix = prefixes[next];
+            next = next + 1 == prefixes.length ? 0 : next + 1;
+            return prefix;
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        String word = wordArray[nextWord];
+        nextWord = nextWord + 1 == wordArray.length ? 0 : nextWord + 1;
+        return dictionary.contains(word);
+    }
+
+    @Benchmark
+    public List<String> predict(Prefixes prefixes) {
+        return dictionary.predict(prefixes.next(), prefixes.n);
+    }
+}
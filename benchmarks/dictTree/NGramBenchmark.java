@@ -0,0 +1,66 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.annotations.*;
+import src.dictTree.NGramIndex;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next word prediction and combined suggestions on the n-gram index of the text
+ * file named by the ngram.corpus system property, e.g.
+ * {@code -jvmArgs -Dngram.corpus=corpus.txt}. The texts typed are the two words
+ * before every 100th word of the corpus, with the first letter of the word for
+ * suggest.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NGramBenchmark {
+
+    private NGramIndex index;
+    private String[] contexts;
+    private String[] partials;
+    private int next;
+
+    @Setup
+    public void build() throws IOException {
+        String corpus = System.getProperty("ngram.corpus");
+        if (corpus == null)
+            throw new IllegalStateException("Set -Dngram.corpus to a text file");
+        index = NGramIndex.build(Paths.get(corpus));
+
+        String[] words = new String(Files.readAllBytes(Paths.get(corpus)), StandardCharsets.UTF_8)
+                .toLowerCase().split("[^\\p{L}\\p{N}']+");
+        List<String> contextList = new ArrayList<>();
+        List<String> partialList = new ArrayList<>();
+        for (int i = 2; i < words.length; i += 100) {
+            if (words[i].isEmpty())
+                continue;
+            contextList.add(words[i - 2] + " " + words[i - 1] + " ");
+            partialList.add(words[i - 2] + " " + words[i - 1] + " " + words[i].charAt(0));
+        }
+        contexts = contextList.toArray(new String[0]);
+        partials = partialList.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public List<String> predictNext() {
+        next = next + 1 < contexts.length ? next + 1 : 0;
+        return index.predictNext(contexts[next], 5);
+    }
+
+    @Benchmark
+    public NGramIndex.Suggestions suggest() {
+        next = next + 1 < partials.length ? next + 1 : 0;
+        return index.suggest(partials[next], 5);
+    }
+}
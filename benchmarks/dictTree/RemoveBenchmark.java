@@ -0,0 +1,45 @@
+package benchmarks.dictTree;
+
+import org.openjdk.jmh.annotations.*;
+import src.dictTree.DictionaryTree;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * remove(word). Every removed word is put back right away to keep the dictionary
+ * the same size, so the cost of remove alone is this minus
+ * {@link InsertBenchmark#insertExisting()}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RemoveBenchmark {
+
+    @Param({"10000", "50000", "100000"})
+    int words;
+
+    private List<String> wordList;
+    private DictionaryTree dictionary;
+    private int next;
+
+    @Setup
+    public void build() {
+        wordList = WordFile.words(words);
+        dictionary = WordFile.dictionary(wordList);
+    }
+
+    @Benchmark
+    public boolean removeAndInsert() {
+        int index = next;
+        next = index + 1 == wordList.size() ? 0 : index + 1;
+        String word = wordList.get(index);
+
+        boolean removed = dictionary.remove(word);
+        dictionary.insert(word, WordFile.popularity(index));
+        return removed;
+    }
+}
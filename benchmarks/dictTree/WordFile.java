@@ -0,0 +1,53 @@
+package benchmarks.dictTree;
+
+import src.dictTree.DictionaryTree;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * The words the benchmarks run on: the first lines of word-popularity.txt (or the
+ * file named by the words.file system property), with the popularities
+ * WordAutoComplete gives them.
+ */
+final class WordFile {
+
+    private WordFile() {
+    }
+
+    /**
+     * @param count the number of words wanted, or 0 for all of them
+     * @return the first count words of the word file
+     */
+    static List<String> words(int count) {
+        try {
+            List<String> words = Files.readAllLines(Paths.get(System.getProperty("words.file", "word-popularity.txt")),
+                    StandardCharsets.UTF_8);
+            return count > 0 && count < words.size() ? words.subList(0, count) : words;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return the popularity of the word in the given line, as given by WordAutoComplete
+     */
+    static int popularity(int index) {
+        return 100003 - index;
+    }
+
+    /**
+     * @return a dictionary of the given words, inserted in order
+     */
+    static DictionaryTree dictionary(List<String> words) {
+        DictionaryTree dictionary = new DictionaryTree();
+        for (int i = 0; i < words.size(); i++) {
+            dictionary.insert(words.get(i), popularity(i));
+        }
+        return dictionary;
+    }
+}
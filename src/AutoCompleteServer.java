@@ -0,0 +1,265 @@
+package src;
+
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.Prediction;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serves a dictionary over TCP, one request per line and one JSON response per
+ * line, in order:
+ *
+ * <pre>
+ * PREDICT 5 pro   -&gt; {"prefix":"pro","words":["products","product","program","project","programs"]}
+ * CONTAINS word   -&gt; {"word":"word","contains":true}
+ * SCORED 2 pro    -&gt; {"prefix":"pro","words":["products","product"],"pops":[99965,99952]}
+ * INSERT 7 word   -&gt; {"word":"word","inserted":true}
+ * </pre>
+ *
+ * SCORED and INSERT let the server act as a {@link RemoteShard} of a sharded
+ * dictionary: SCORED predicts like PREDICT along with the popularities, and
+ * INSERT sets the popularity of a word, adding it if needed. There is no
+ * authentication, so any client which can connect can change the served
+ * dictionary; listen only on addresses trusted clients can reach.
+ *
+ * Anything else is answered with {"error":"..."}. Clients may send many requests
+ * without waiting for the responses; the responses to requests which arrived
+ * together are sent together. Every connection is handled by its own thread, a
+ * virtual one when the JVM has them (Java 21 onwards).
+ */
+public class AutoCompleteServer implements Closeable {
+
+    private final ConcurrentDictionaryTree dictionary;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = newConnectionExecutor();
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+
+    /**
+     * Starts serving the given dictionary on the given port.
+     *
+     * @param dictionary the dictionary served, which may change meanwhile
+     * @param address    the address to listen on, or null for all of them
+     * @param port       the port to listen on, or 0 for any free one
+     * @throws IOException if the port could not be opened
+     */
+    public AutoCompleteServer(ConcurrentDictionaryTree dictionary, InetAddress address, int port) throws IOException {
+        this.dictionary = dictionary;
+        this.serverSocket = new ServerSocket(port, 128, address);
+        this.acceptor = new Thread(this::accept, "autocomplete-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections and closes the open ones.
+     */
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        connections.shutdownNow();
+    }
+
+    /**
+     * @return an executor running every task on a new virtual thread if the JVM
+     * has them, or on a (reused) platform thread otherwise
+     */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                openSockets.add(socket);
+                // close() may have gone through the open sockets before this one was added
+                if (serverSocket.isClosed()) {
+                    socket.close();
+                    break;
+                }
+                try {
+                    connections.execute(() -> serve(socket));
+                } catch (RejectedExecutionException e) {
+                    socket.close();
+                }
+            } catch (SocketException e) {
+                // The server socket was closed
+            } catch (IOException e) {
+                System.err.println("Could not accept a connection: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the client closes it.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+             Reader in = new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8);
+             Writer out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            s.setTcpNoDelay(true);
+
+            char[] chunk = new char[8192];
+            // The start of a request whose line break has not arrived yet
+            StringBuilder partial = new StringBuilder();
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] != '\n')
+                        continue;
+                    partial.append(chunk, start, i - start);
+                    start = i + 1;
+                    if (partial.length() > 0 && partial.charAt(partial.length() - 1) == '\r')
+                        partial.setLength(partial.length() - 1);
+                    out.write(answer(partial.toString()));
+                    out.write('\n');
+                    partial.setLength(0);
+                }
+                partial.append(chunk, start, read - start);
+                // The requests which arrived together are answered in the same packet,
+                // and a request cut short is not waited for before sending them
+                out.flush();
+            }
+            // A last request without a line break, sent before shutting down output
+            if (partial.length() > 0) {
+                out.write(answer(partial.toString()));
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            // The connection broke or the server was closed
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    /**
+     * @return the response to the given request, or an error if answering it
+     * failed, so one bad request does not cost the client the connection
+     */
+    private String answer(String request) {
+        try {
+            return respond(request);
+        } catch (RuntimeException e) {
+            return error("could not answer: " + e);
+        }
+    }
+
+    /**
+     * @param request one line of the protocol
+     * @return the JSON response to the request
+     */
+    String respond(String request) {
+        String[] parts = request.split(" ", 3);
+
+        if (parts[0].equals("PREDICT") && parts.length >= 2) {
+            int n;
+            try {
+                n = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return error("not a number: " + parts[1]);
+            }
+            if (n < 0)
+                return error("n must not be negative: " + n);
+            String prefix = parts.length == 3 ? parts[2] : "";
+            return "{\"prefix\":" + quote(prefix) + ",\"words\":" + quote(dictionary.predict(prefix, n)) + "}";
+        }
+
+        if (parts[0].equals("SCORED") && parts.length >= 2) {
+            int n;
+            try {
+                n = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return error("not a number: " + parts[1]);
+            }
+            if (n < 0)
+                return error("n must not be negative: " + n);
+            Prediction prediction = dictionary.predictWithPops(parts.length == 3 ? parts[2] : "", n);
+            StringBuilder pops = new StringBuilder("[");
+            for (int i = 0; i < prediction.getWords().size(); i++) {
+                if (i > 0)
+                    pops.append(',');
+                pops.append(prediction.getPopularity(i));
+            }
+            return "{\"prefix\":" + quote(prediction.getPrefix()) + ",\"words\":" + quote(prediction.getWords())
+                    + ",\"pops\":" + pops.append(']') + "}";
+        }
+
+        if (parts[0].equals("INSERT") && parts.length == 3) {
+            int popularity;
+            try {
+                popularity = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException e) {
+                return error("not a number: " + parts[1]);
+            }
+            // The tree keeps Integer.MIN_VALUE to mark nodes without a word
+            if (popularity == Integer.MIN_VALUE)
+                return error("popularity out of range: " + popularity);
+            dictionary.insert(parts[2], popularity);
+            return "{\"word\":" + quote(parts[2]) + ",\"inserted\":" + !parts[2].isEmpty() + "}";
+        }
+
+        if (parts[0].equals("CONTAINS")) {
+            String word = request.length() > "CONTAINS ".length() ? request.substring("CONTAINS ".length()) : "";
+            return "{\"word\":" + quote(word) + ",\"contains\":" + dictionary.contains(word) + "}";
+        }
+
+        return error("unknown request: " + request);
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + quote(message) + "}";
+    }
+
+    private static String quote(List<String> words) {
+        StringBuilder json = new StringBuilder("[");
+        for (String word : words) {
+            if (json.length() > 1)
+                json.append(',');
+            json.append(quote(word));
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * @return the given text as a JSON string
+     */
+    static String quote(String text) {
+        StringBuilder json = new StringBuilder(text.length() + 2).append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"' || c == '\\')
+                json.append('\\').append(c);
+            else if (c < 0x20)
+                json.append(String.format("\\u%04x", (int) c));
+            else
+                json.append(c);
+        }
+        return json.append('"').toString();
+    }
+}
@@ -0,0 +1,106 @@
+package src;
+
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.DictionaryTree;
+import src.dictTree.Histogram;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Serves a word file with {@link AutoCompleteServer} on the loopback interface
+ * and sends it PREDICT requests as fast as it answers them, from several
+ * connections which each keep a number of requests in flight. The first fifth
+ * of the run warms up; afterwards the requests answered per second and the
+ * percentiles of the time from sending a request to reading its response are
+ * printed.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: src.LoadTest wordPopularityFile [connections [seconds [pipelined requests]]]");
+            return;
+        }
+        int connections = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int pipelined = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+
+        List<String> words = Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8);
+        ConcurrentDictionaryTree dictionary = new ConcurrentDictionaryTree(
+                DictionaryTree.build(words, index -> 100003 - index));
+
+        try (AutoCompleteServer server = new AutoCompleteServer(dictionary, InetAddress.getLoopbackAddress(), 0)) {
+            long start = System.nanoTime();
+            long measureFrom = start + seconds * 1_000_000_000L / 5;
+            long end = start + seconds * 1_000_000_000L;
+            Histogram latencies = new Histogram();
+            AtomicLong answered = new AtomicLong();
+
+            List<Thread> clients = new ArrayList<>();
+            for (int c = 0; c < connections; c++) {
+                long seed = c;
+                clients.add(new Thread(() -> {
+                    try {
+                        runClient(server.port(), words, new Random(seed), pipelined, measureFrom, end, latencies,
+                                answered);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (Thread client : clients) {
+                client.start();
+            }
+            for (Thread client : clients) {
+                client.join();
+            }
+
+            Histogram.Snapshot snapshot = latencies.snapshot();
+            double measuredSeconds = (end - measureFrom) / 1e9;
+            System.out.printf("%d connections, %d requests in flight each: %.0f requests/s%n", connections, pipelined,
+                    answered.get() / measuredSeconds);
+            System.out.printf("latency p50 %.1f us, p99 %.1f us, p999 %.1f us, max %.1f us%n", snapshot.getP50() / 1e3,
+                    snapshot.getP99() / 1e3, snapshot.getP999() / 1e3, snapshot.getMax() / 1e3);
+        }
+    }
+
+    /**
+     * Sends batches of PREDICT requests for random prefixes of the given words and
+     * reads their responses until the end, recording those sent after measureFrom.
+     */
+    private static void runClient(int port, List<String> words, Random random, int pipelined, long measureFrom,
+                                  long end, Histogram latencies, AtomicLong answered) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+
+            long sent;
+            while ((sent = System.nanoTime()) < end) {
+                for (int i = 0; i < pipelined; i++) {
+                    String word = words.get(random.nextInt(words.size()));
+                    out.write("PREDICT 5 " + word.substring(0, Math.min(word.length(), 1 + random.nextInt(6))) + "\n");
+                }
+                out.flush();
+
+                for (int i = 0; i < pipelined; i++) {
+                    if (in.readLine() == null)
+                        throw new EOFException("The server closed the connection");
+                    if (sent >= measureFrom) {
+                        latencies.record(System.nanoTime() - sent);
+                        answered.incrementAndGet();
+                    }
+                }
+            }
+        }
+    }
+}
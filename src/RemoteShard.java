@@ -0,0 +1,191 @@
+package src;
+
+import src.dictTree.DictionaryShard;
+import src.dictTree.Prediction;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A shard served by an {@link AutoCompleteServer}, usually in another process.
+ * Every request waits for its response on a connection of its own, taken from a
+ * pool which grows to the number of threads using the shard at once.
+ * Connection problems are thrown as UncheckedIOExceptions.
+ */
+public class RemoteShard implements DictionaryShard {
+
+    private final InetAddress address;
+    private final int port;
+    private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+    private final Queue<Connection> all = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Connects to the server on the given address and port.
+     *
+     * @param address the address of the server
+     * @param port    the port of the server
+     * @throws IOException if the server could not be reached
+     */
+    public RemoteShard(InetAddress address, int port) throws IOException {
+        this.address = address;
+        this.port = port;
+        idle.add(connect());
+    }
+
+    @Override
+    public boolean contains(String word) {
+        String response = request("CONTAINS " + word);
+        return response.endsWith("\"contains\":true}");
+    }
+
+    @Override
+    public void insert(String word, int popularity) {
+        request("INSERT " + popularity + " " + word);
+    }
+
+    @Override
+    public Prediction predict(String prefix, int n) {
+        String response = request("SCORED " + n + " " + prefix);
+
+        // {"prefix":"...","words":["...",...],"pops":[...]}
+        int[] position = {response.indexOf(",\"words\":[") + ",\"words\":[".length()};
+        List<String> words = new ArrayList<>();
+        while (response.charAt(position[0]) == '"') {
+            words.add(readString(response, position));
+            if (response.charAt(position[0]) == ',')
+                position[0]++;
+        }
+
+        int popsStart = response.indexOf('[', position[0]) + 1;
+        int popsEnd = response.indexOf(']', popsStart);
+        int[] popularities = new int[words.size()];
+        String[] pops = response.substring(popsStart, popsEnd).split(",");
+        for (int i = 0; i < popularities.length; i++) {
+            popularities[i] = Integer.parseInt(pops[i]);
+        }
+        return new Prediction(prefix, words, popularities);
+    }
+
+    /**
+     * Reads the JSON string starting at the given position, leaving the position
+     * after its closing quote.
+     */
+    private static String readString(String json, int[] position) {
+        StringBuilder text = new StringBuilder();
+        int i = position[0] + 1;
+        while (json.charAt(i) != '"') {
+            char c = json.charAt(i++);
+            if (c != '\\') {
+                text.append(c);
+            } else if (json.charAt(i) == 'u') {
+                text.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                i += 5;
+            } else {
+                text.append(json.charAt(i++));
+            }
+        }
+        position[0] = i + 1;
+        return text.toString();
+    }
+
+    /**
+     * Sends one request on an idle connection and waits for the response.
+     *
+     * @return the response, which is never an error
+     */
+    private String request(String request) {
+        if (request.indexOf('\n') >= 0)
+            throw new IllegalArgumentException("Requests can not contain line breaks: " + request);
+
+        Connection connection = null;
+        String response;
+        try {
+            connection = idle.poll();
+            if (connection == null)
+                connection = connect();
+            response = connection.send(request);
+        } catch (IOException e) {
+            // A connection which failed is dropped rather than reused
+            if (connection != null)
+                drop(connection);
+            throw new UncheckedIOException(e);
+        }
+        idle.add(connection);
+
+        if (response.startsWith("{\"error\":"))
+            throw new IllegalStateException("The shard at port " + port + " answered " + response);
+        return response;
+    }
+
+    private Connection connect() throws IOException {
+        if (closed)
+            throw new IOException("The shard is closed");
+        Socket socket = new Socket(address, port);
+        Connection connection;
+        try {
+            connection = new Connection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+        all.add(connection);
+        // close() may have gone through the connections before this one was added
+        if (closed) {
+            drop(connection);
+            throw new IOException("The shard is closed");
+        }
+        return connection;
+    }
+
+    private void drop(Connection connection) {
+        all.remove(connection);
+        try {
+            connection.socket.close();
+        } catch (IOException e) {
+            // The connection is given up either way
+        }
+    }
+
+    /**
+     * Closes every connection to the server.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (Connection connection : all) {
+            connection.socket.close();
+        }
+    }
+
+    private static final class Connection {
+
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String send(String request) throws IOException {
+            out.write(request);
+            out.write('\n');
+            out.flush();
+
+            String response = in.readLine();
+            if (response == null)
+                throw new EOFException("The shard closed the connection");
+            return response;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package src;
+
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.DictionaryShard;
+import src.dictTree.DictionaryTree;
+import src.dictTree.LocalShard;
+import src.dictTree.ShardedDictionary;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the prediction throughput of one dictionary with a
+ * {@link ShardedDictionary} of the same words, with the shards in this JVM and
+ * in separate local processes (started as {@code src.WordAutoComplete --serve}).
+ * Several threads predict random prefixes of 1 to 6 letters as fast as they can;
+ * the first fifth of every run warms up, and the predictions per second of the
+ * rest are printed.
+ */
+public class ShardLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: src.ShardLoadTest wordPopularityFile [shards [threads [seconds]]]");
+            return;
+        }
+        String wordFile = args[0];
+        int shardCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        List<String> words = Files.readAllLines(Paths.get(wordFile), StandardCharsets.UTF_8);
+        DictionaryTree tree = DictionaryTree.build(words, index -> 100003 - index);
+        List<String> boundaries = ShardedDictionary.boundaries(tree, shardCount);
+        System.out.println(shardCount + " shards starting at " + boundaries);
+
+        ConcurrentDictionaryTree single = new ConcurrentDictionaryTree(tree);
+        measure("one tree", single::predict, words, threads, seconds);
+
+        List<DictionaryShard> localShards = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            List<String> range = tree.wordsInRange(i == 0 ? "" : boundaries.get(i - 1),
+                    i == shardCount - 1 ? null : boundaries.get(i)).collect(Collectors.toList());
+            localShards.add(new LocalShard(new ConcurrentDictionaryTree(
+                    DictionaryTree.build(range, index -> tree.getPop(range.get(index))))));
+        }
+        try (ShardedDictionary sharded = new ShardedDictionary(boundaries, localShards)) {
+            measure(shardCount + " shards in this process", sharded::predict, words, threads, seconds);
+        }
+
+        List<Process> processes = new ArrayList<>();
+        try {
+            try (ShardedDictionary remote = new ShardedDictionary(new ArrayList<>(),
+                    List.of(startShard(wordFile, "-", "-", processes)))) {
+                measure("one tree in another process", remote::predict, words, threads, seconds);
+            }
+
+            List<DictionaryShard> remoteShards = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                remoteShards.add(startShard(wordFile, i == 0 ? "-" : boundaries.get(i - 1),
+                        i == shardCount - 1 ? "-" : boundaries.get(i), processes));
+            }
+            try (ShardedDictionary remote = new ShardedDictionary(boundaries, remoteShards)) {
+                measure(shardCount + " shards in other processes", remote::predict, words, threads, seconds);
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+    }
+
+    /**
+     * Starts a process serving the words of the given range and connects to it.
+     */
+    private static RemoteShard startShard(String wordFile, String from, String to, List<Process> processes)
+            throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "src.WordAutoComplete", "--serve", "0", wordFile, from, to)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        processes.add(process);
+
+        BufferedReader output = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.startsWith("Serving on port "))
+                return new RemoteShard(InetAddress.getLoopbackAddress(),
+                        Integer.parseInt(line.substring("Serving on port ".length())));
+        }
+        throw new EOFException("The shard for " + from + " to " + to + " did not start");
+    }
+
+    /**
+     * Predicts random prefixes of the given words from several threads and prints
+     * the number of predictions per second after the warm-up.
+     */
+    private static void measure(String name, BiFunction<String, Integer, List<String>> predictor, List<String> words,
+                                int threads, int seconds) throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + seconds * 1_000_000_000L / 5;
+        long end = start + seconds * 1_000_000_000L;
+        AtomicLong predicted = new AtomicLong();
+
+        List<Thread> clients = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Random random = new Random(t);
+            clients.add(new Thread(() -> {
+                long now;
+                while ((now = System.nanoTime()) < end) {
+                    String word = words.get(random.nextInt(words.size()));
+                    predictor.apply(word.substring(0, Math.min(word.length(), 1 + random.nextInt(6))), 5);
+                    if (now >= measureFrom)
+                        predicted.incrementAndGet();
+                }
+            }));
+        }
+        for (Thread client : clients) {
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        System.out.printf("%-30s %10.0f predictions/s%n", name, predicted.get() / ((end - measureFrom) / 1e9));
+    }
+}
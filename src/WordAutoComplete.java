@@ -1,8 +1,18 @@
 package src;
 
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.DictionaryAutomaton;
 import src.dictTree.DictionaryTree;
+import src.dictTree.FrozenDictionary;
+import src.dictTree.NGramIndex;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
 
 public class WordAutoComplete {
 
@@ -14,7 +24,7 @@ public class WordAutoComplete {
      * @return the dictionary with the words loaded from the given file
      * @throws IOException if there was a problem opening/reading from the file
      */
-    static DictionaryTree loadWords(File f) throws IOException {
+    public static DictionaryTree loadWords(File f) throws IOException {
         try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(f), "UTF-8"))) {
             String word;
             int pop = 100003;
@@ -28,23 +38,176 @@ public class WordAutoComplete {
         }
     }
 
+    /**
+     * Loads words (lines) from the given file like {@link #loadWords(File)}, giving
+     * them the same popularities, but builds the dictionary on all cores.
+     *
+     * @param f the file from which the words will be loaded
+     * @return the dictionary with the words loaded from the given file
+     * @throws IOException if there was a problem opening/reading from the file
+     */
+    static DictionaryTree loadWordsParallel(File f) throws IOException {
+        List<String> words = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        return DictionaryTree.build(words, index -> 100003 - index);
+    }
+
+    /**
+     * Loads the words (lines) of the given file from one word up to but excluding
+     * another, giving them the popularities {@link #loadWords(File)} would, as the
+     * shard of a sharded dictionary.
+     *
+     * @param f    the file from which the words will be loaded
+     * @param from the first word loaded if it is in the file
+     * @param to   the word the range ends before, or null for none
+     * @return the dictionary with the words in the range
+     * @throws IOException if there was a problem opening/reading from the file
+     */
+    static DictionaryTree loadWordsInRange(File f, String from, String to) throws IOException {
+        List<String> words = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+        List<String> inRange = new ArrayList<>();
+        List<Integer> pops = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            String word = words.get(i);
+            if (word.compareTo(from) >= 0 && (to == null || word.compareTo(to) < 0)) {
+                inRange.add(word);
+                pops.add(100003 - i);
+            }
+        }
+        return DictionaryTree.build(inRange, pops::get);
+    }
+
+    /**
+     * Reads prefixes from the standard input until it ends and prints the 5 most
+     * popular predictions for each of them.
+     *
+     * @param predictor returns the (at most) n most popular words with the given prefix
+     * @throws IOException if there was a problem reading from the standard input
+     */
+    static void predictFromInput(BiFunction<String, Integer, List<String>> predictor) throws IOException {
+        System.out.println("Enter prefixes for prediction below.");
+
+        try (BufferedReader fromUser = new BufferedReader(new InputStreamReader(System.in))) {
+            String prefix;
+            while ((prefix = fromUser.readLine()) != null) {
+                System.out.println("---> " + predictor.apply(prefix, 5));
+            }
+        }
+    }
+
+    /**
+     * Reads prefixes from the standard input until it ends and prints the 5 most
+     * popular predictions for each of them. Each line is taken as the text typed so
+     * far: the cursor backs up to where it parts from the previous line and only
+     * the new letters are typed, so extending or correcting a prefix does not
+     * search the dictionary from its root again.
+     *
+     * @param cursor the cursor of the dictionary predicting the words
+     * @throws IOException if there was a problem reading from the standard input
+     */
+    static void predictFromInput(DictionaryTree.Cursor cursor) throws IOException {
+        System.out.println("Enter prefixes for prediction below.");
+
+        try (BufferedReader fromUser = new BufferedReader(new InputStreamReader(System.in))) {
+            String prefix;
+            String previous = "";
+            while ((prefix = fromUser.readLine()) != null) {
+                int common = 0;
+                while (common < prefix.length() && common < previous.length()
+                        && prefix.charAt(common) == previous.charAt(common))
+                    common++;
+
+                for (int i = previous.length(); i > common; i--) {
+                    cursor.backspace();
+                }
+                cursor.type(prefix.substring(common));
+                previous = prefix;
+
+                System.out.println("---> " + cursor.predict(5));
+            }
+        }
+    }
+
+    /**
+     * Reads text from the standard input until it ends and prints the completions
+     * of the word each line ends with and the words predicted after it.
+     *
+     * @param index the n-gram index of a corpus
+     * @throws IOException if there was a problem reading from the standard input
+     */
+    static void suggestFromInput(NGramIndex index) throws IOException {
+        System.out.println("Enter text for prediction below.");
+
+        try (BufferedReader fromUser = new BufferedReader(new InputStreamReader(System.in))) {
+            String text;
+            while ((text = fromUser.readLine()) != null) {
+                NGramIndex.Suggestions suggestions = index.suggest(text, 5);
+                System.out.println("---> " + suggestions.getCompletions() + " then " + suggestions.getNextWords());
+            }
+        }
+    }
+
     public static void main(String[] args) throws IOException {
+        if (args.length == 3 && args[0].equals("--snapshot")) {
+            System.out.println("Loading dictionary ... ");
+            loadWordsParallel(new File(args[1])).freeze().write(Paths.get(args[2]));
+            System.out.println("Snapshot written to " + args[2]);
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals("--mapped")) {
+            FrozenDictionary d = FrozenDictionary.map(Paths.get(args[1]));
+            predictFromInput(d::predict);
+            return;
+        }
+
+        if ((args.length == 3 || args.length == 5) && args[0].equals("--serve")) {
+            System.out.println("Loading dictionary ... ");
+            // A shard only loads the words from args[3] up to args[4], "-" leaving a side open
+            DictionaryTree tree = args.length == 3 ? loadWordsParallel(new File(args[2]))
+                    : loadWordsInRange(new File(args[2]), args[3].equals("-") ? "" : args[3],
+                    args[4].equals("-") ? null : args[4]);
+            ConcurrentDictionaryTree d = new ConcurrentDictionaryTree(tree);
+            AutoCompleteServer server = new AutoCompleteServer(d, null, Integer.parseInt(args[1]));
+            System.out.println("Serving on port " + server.port());
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals("--automaton")) {
+            System.out.println("Loading dictionary ... ");
+            List<String> words = Files.readAllLines(Paths.get(args[1]), StandardCharsets.UTF_8);
+            DictionaryAutomaton d = DictionaryAutomaton.build(words, index -> 100003 - index);
+            System.out.println("done: " + d.stateCount() + " states, " + d.transitionCount() + " transitions");
+            predictFromInput(d::predict);
+            return;
+        }
+
+        if (args.length == 2 && args[0].equals("--ngrams")) {
+            System.out.println("Indexing corpus ... ");
+            NGramIndex index = NGramIndex.build(Paths.get(args[1]));
+            long ngrams = index.bigramCount() + index.trigramCount();
+            System.out.println("done: " + index.wordCount() + " words, " + index.bigramCount() + " bigrams, "
+                    + index.trigramCount() + " trigrams, " + index.storedSuccessors() + " successors kept in "
+                    + index.indexBytes() + " bytes (" + String.format("%.1f", (double) index.indexBytes() / ngrams)
+                    + " per n-gram)");
+            suggestFromInput(index);
+            return;
+        }
+
         System.out.println("Loading dictionary ... ");
         if (args.length != 1) {
             System.out.println("Usage: src.WordAutoComplete wordPopularityFile");
+            System.out.println("       src.WordAutoComplete --snapshot wordPopularityFile snapshotFile");
+            System.out.println("       src.WordAutoComplete --mapped snapshotFile");
+            System.out.println("       src.WordAutoComplete --automaton wordPopularityFile");
+            System.out.println("       src.WordAutoComplete --ngrams corpusFile");
+            System.out.println("       src.WordAutoComplete --serve port wordPopularityFile [fromWord|- toWord|-]");
+            System.out.println("         (any client of the server may add words with INSERT)");
             return;
         }
-        DictionaryTree d = loadWords(new File(args[0]));
+        DictionaryTree d = loadWordsParallel(new File(args[0]));
         System.out.println("done");
 
-        System.out.println("Enter prefixes for prediction below.");
-
-        try (BufferedReader fromUser = new BufferedReader(new InputStreamReader(System.in))) {
-            while (true) {
-                System.out.println("---> " + d.predict(fromUser.readLine(), 5
-                ));
-            }
-        }
+        predictFromInput(d.cursor());
     }
 
 }
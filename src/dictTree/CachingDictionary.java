@@ -0,0 +1,245 @@
+package src.dictTree;
+
+import java.util.*;
+
+/**
+ * A {@link ConcurrentDictionaryTree} with a bounded cache of whole predictions in
+ * front of it, for traffic where a few prefixes make up most of the requests.
+ *
+ * Predictions are cached by prefix and number of words, the least recently used
+ * one making room for a new one once the cache is full. A change to a word only
+ * drops the predictions for the prefixes of that word, as no other prediction
+ * can contain it. Hits, misses, evictions and invalidations are counted.
+ *
+ * Like the dictionary itself, this can be used by any number of threads.
+ */
+public class CachingDictionary {
+
+    private final ConcurrentDictionaryTree dictionary;
+    private final int capacity;
+
+    // Everything below is guarded by the lock of the cache
+    private final LinkedHashMap<Key, List<String>> cache;
+    // The numbers of words cached for every prefix, to find the entries of a prefix
+    private final Map<String, Set<Integer>> cachedSizes = new HashMap<>();
+    // Counts the changes, so a prediction made while one happened is not cached
+    private long changes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+
+    /**
+     * Creates a cache of the predictions of the given dictionary. The dictionary
+     * must only be changed through this cache from now on.
+     *
+     * @param dictionary the dictionary predicting the words
+     * @param capacity   the maximum number of predictions cached
+     */
+    public CachingDictionary(ConcurrentDictionaryTree dictionary, int capacity) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.dictionary = dictionary;
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<Key, List<String>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<String>> eldest) {
+                if (size() <= CachingDictionary.this.capacity)
+                    return false;
+
+                forget(eldest.getKey());
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the given prefix, see
+     * {@link DictionaryTree#predict(String, int)}, from the cache if it holds them.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix, which
+     * can not be modified
+     */
+    public List<String> predict(String prefix, int n) {
+        Key key = new Key(prefix, n);
+        long changesBefore;
+        synchronized (cache) {
+            List<String> predicted = cache.get(key);
+            if (predicted != null) {
+                hits++;
+                return predicted;
+            }
+            misses++;
+            changesBefore = changes;
+        }
+
+        List<String> predicted = Collections.unmodifiableList(new ArrayList<>(dictionary.predict(prefix, n)));
+
+        synchronized (cache) {
+            // A change during the prediction may have made it stale already
+            if (changes == changesBefore && cache.put(key, predicted) == null)
+                cachedSizes.computeIfAbsent(prefix, p -> new HashSet<>()).add(n);
+        }
+        return predicted;
+    }
+
+    /**
+     * @param word the word whose presence will be checked
+     * @return true if the specified word is stored in this dictionary; false otherwise
+     */
+    public boolean contains(CharSequence word) {
+        return dictionary.contains(word);
+    }
+
+    /**
+     * Inserts the given word with a popularity of -1, see
+     * {@link ConcurrentDictionaryTree#insert(String)}.
+     *
+     * @param word the word to insert
+     */
+    public void insert(String word) {
+        dictionary.insert(word);
+        invalidate(word);
+    }
+
+    /**
+     * Inserts the given word with the given popularity, see
+     * {@link ConcurrentDictionaryTree#insert(String, int)}.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        dictionary.insert(word, popularity);
+        invalidate(word);
+    }
+
+    /**
+     * Changes the popularity of the given word if it is in the dictionary.
+     *
+     * @param word       the word whose popularity is changed
+     * @param popularity the new popularity
+     * @return true if the word was found; false otherwise
+     */
+    public boolean setPop(String word, int popularity) {
+        boolean found = dictionary.setPop(word, popularity);
+        if (found)
+            invalidate(word);
+        return found;
+    }
+
+    /**
+     * Removes the given word from the dictionary.
+     *
+     * @param word the word to remove
+     * @return true if the word was in the dictionary; false otherwise
+     */
+    public boolean remove(String word) {
+        boolean removed = dictionary.remove(word);
+        if (removed)
+            invalidate(word);
+        return removed;
+    }
+
+    /**
+     * @return the number of predictions answered from the cache
+     */
+    public long hits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of predictions made by the dictionary
+     */
+    public long misses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the number of predictions dropped to make room for newer ones
+     */
+    public long evictions() {
+        synchronized (cache) {
+            return evictions;
+        }
+    }
+
+    /**
+     * @return the number of predictions dropped because a word in them changed
+     */
+    public long invalidations() {
+        synchronized (cache) {
+            return invalidations;
+        }
+    }
+
+    /**
+     * @return the number of predictions cached
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Drops the cached predictions for every prefix of the given (changed) word,
+     * including the word itself.
+     */
+    private void invalidate(String word) {
+        synchronized (cache) {
+            changes++;
+            for (int i = 0; i <= word.length(); i++) {
+                Set<Integer> sizes = cachedSizes.remove(word.substring(0, i));
+                if (sizes == null)
+                    continue;
+
+                for (int n : sizes) {
+                    cache.remove(new Key(word.substring(0, i), n));
+                }
+                invalidations += sizes.size();
+            }
+        }
+    }
+
+    /**
+     * Removes the given key from the index of cached sizes.
+     */
+    private void forget(Key key) {
+        Set<Integer> sizes = cachedSizes.get(key.prefix);
+        sizes.remove(key.n);
+        if (sizes.isEmpty())
+            cachedSizes.remove(key.prefix);
+    }
+
+    /**
+     * A prefix and the number of words predicted for it.
+     */
+    private static final class Key {
+
+        private final String prefix;
+        private final int n;
+
+        Key(String prefix, int n) {
+            this.prefix = prefix;
+            this.n = n;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key && ((Key) other).prefix.equals(prefix) && ((Key) other).n == n;
+        }
+
+        @Override
+        public int hashCode() {
+            return prefix.hashCode() * 31 + n;
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package src.dictTree;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * A dictionary which can be read and changed by many threads at once.
+ *
+ * Readers never wait: every read follows the current root of a tree which is
+ * never changed once published. Writers take turns to copy the nodes on the path
+ * of their word, change the copies and publish the new root in one volatile
+ * write, so every read sees the dictionary either completely before or
+ * completely after a change. Everything off the path is shared between the
+ * versions, which makes a change cost about as much as on a {@link DictionaryTree}.
+ */
+public class ConcurrentDictionaryTree {
+
+    private final Object writeLock = new Object();
+    // Only replaced while holding writeLock, never changed after it is published
+    private volatile DictionaryTree root;
+
+    /**
+     * Creates an empty dictionary which caches the
+     * {@value DictionaryTree#DEFAULT_CACHE_SIZE} most popular completions at every node.
+     */
+    public ConcurrentDictionaryTree() {
+        this(new DictionaryTree());
+    }
+
+    /**
+     * Creates a dictionary holding the words of the given tree, e.g. one made by
+     * {@link DictionaryTree#build}. The tree is taken over rather than copied, so it
+     * must not be changed directly afterwards.
+     *
+     * @param tree the words the dictionary starts with
+     */
+    public ConcurrentDictionaryTree(DictionaryTree tree) {
+        root = tree;
+    }
+
+    /**
+     * Inserts the given word with a popularity of -1, see
+     * {@link DictionaryTree#insert(String)}. If the word already exists, nothing
+     * will change.
+     *
+     * @param word the word to insert
+     */
+    public void insert(String word) {
+        synchronized (writeLock) {
+            if (!root.containsWord(word)) {
+                DictionaryTree next = root.copyPath(word);
+                next.insert(word);
+                root = next;
+            }
+        }
+    }
+
+    /**
+     * Inserts the given word with the given popularity. If the word already
+     * exists, the popularity will be overwritten by the given value.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        synchronized (writeLock) {
+            DictionaryTree next = root.copyPath(word);
+            next.insert(word, popularity);
+            root = next;
+        }
+    }
+
+    /**
+     * Changes the popularity of the given word if it is in the dictionary.
+     *
+     * @param word       the word whose popularity is changed
+     * @param popularity the new popularity
+     * @return true if the word was found; false otherwise
+     */
+    public boolean setPop(String word, int popularity) {
+        synchronized (writeLock) {
+            if (word.length() == 0 || !root.containsWord(word))
+                return false;
+
+            DictionaryTree next = root.copyPath(word);
+            next.insert(word, popularity);
+            root = next;
+            return true;
+        }
+    }
+
+    /**
+     * Removes the given word from this dictionary.
+     *
+     * @param word the word to remove
+     * @return true if the word was in the dictionary; false otherwise
+     */
+    public boolean remove(String word) {
+        synchronized (writeLock) {
+            if (word.length() == 0 || !root.containsWord(word))
+                return false;
+
+            DictionaryTree next = root.copyPath(word);
+            next.remove(word);
+            root = next;
+            return true;
+        }
+    }
+
+    /**
+     * Adds the given amounts to the popularities of the given words, all in one
+     * change. A word which is not in the dictionary yet is inserted with its amount
+     * as its popularity. Popularities stop at the largest and smallest int values
+     * instead of overflowing.
+     *
+     * @param amounts the amount added to the popularity of each word
+     */
+    public void addPops(Map<String, Integer> amounts) {
+        String[] words = amounts.keySet().toArray(new String[0]);
+        Arrays.sort(words);
+
+        synchronized (writeLock) {
+            int[] popularities = new int[words.length];
+            for (int i = 0; i < words.length; i++) {
+                long popularity = amounts.get(words[i]);
+                if (root.containsWord(words[i]))
+                    popularity += root.getPop(words[i]);
+                popularities[i] = (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, popularity));
+            }
+
+            root = root.withPops(words, popularities);
+        }
+    }
+
+    /**
+     * Multiplies the positive popularities of all words by the given factor,
+     * rounding down, e.g. by 0.5 to halve them. The dictionary is copied as a
+     * whole, so readers keep using the old one until the new one is complete.
+     *
+     * @param factor the factor between 0 and 1 every positive popularity is multiplied by
+     */
+    public void decayPops(double factor) {
+        if (!(factor >= 0 && factor <= 1))
+            throw new IllegalArgumentException("factor must be between 0 and 1: " + factor);
+
+        synchronized (writeLock) {
+            root = root.mapPops(popularity -> popularity > 0 ? (int) (popularity * factor) : popularity);
+        }
+    }
+
+    /**
+     * @param word the word whose presence will be checked
+     * @return true if the specified word is stored in this dictionary; false otherwise
+     */
+    public boolean contains(CharSequence word) {
+        return root.contains(word);
+    }
+
+    /**
+     * Determines whether or not the specified word is stored in this dictionary
+     * without measuring it, for the checks other dictionaries make before changing
+     * this one.
+     */
+    boolean containsWord(CharSequence word) {
+        return root.containsWord(word);
+    }
+
+    /**
+     * Returns the popularity of the given word.
+     * If the word is not there, returns -1.
+     *
+     * @param word the word whose popularity is returned
+     */
+    public int getPop(CharSequence word) {
+        return root.getPop(word);
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the given prefix, see
+     * {@link DictionaryTree#predict(String, int)}. The prediction is made from one
+     * version of the dictionary even if it changes meanwhile.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        return root.predict(prefix, n);
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the given prefix along with
+     * their popularities, see {@link DictionaryTree#predictWithPops(String, int)}.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the predicted words and their popularities
+     */
+    public Prediction predictWithPops(String prefix, int n) {
+        return root.predictWithPops(prefix, n);
+    }
+
+    /**
+     * Predicts the (at most) n most popular words for every one of the given
+     * prefixes, see {@link DictionaryTree#predictAll(Collection, int)}. All
+     * predictions are made from the same version of the dictionary.
+     *
+     * @param prefixes the prefixes of the words found
+     * @param n        the maximum number of words returned per prefix
+     * @return the predictions for every distinct prefix, keyed by the prefix
+     */
+    public Map<String, List<String>> predictAll(Collection<String> prefixes, int n) {
+        return root.predictAll(prefixes, n);
+    }
+
+    /**
+     * Predicts the (at most) n best words starting with a prefix within the given
+     * edit distance of the given one, see {@link DictionaryTree#predictFuzzy}.
+     *
+     * @param prefix      the prefix typed
+     * @param n           the maximum number of words returned
+     * @param maxDistance the largest edit distance allowed from the prefix
+     * @return the (at most) n best words starting with a prefix close to the given one
+     */
+    public List<String> predictFuzzy(String prefix, int n, int maxDistance) {
+        return root.predictFuzzy(prefix, n, maxDistance);
+    }
+
+    /**
+     * @return all words stored in this dictionary as a list
+     */
+    public List<String> allWords() {
+        return root.allWords();
+    }
+
+    /**
+     * Streams the words of the current version of this dictionary in alphabetical
+     * order, see {@link DictionaryTree#words()}. Changes made meanwhile are not seen.
+     *
+     * @return the words of this dictionary
+     */
+    public Stream<String> words() {
+        return root.words();
+    }
+
+    /**
+     * @param prefix the prefix of the words streamed
+     * @return the words with the given prefix in the current version of this
+     * dictionary, see {@link DictionaryTree#wordsWithPrefix(String)}
+     */
+    public Stream<String> wordsWithPrefix(String prefix) {
+        return root.wordsWithPrefix(prefix);
+    }
+
+    /**
+     * @param from the first word streamed if it is in this dictionary
+     * @param to   the word the stream ends before, or null to stream up to the last word
+     * @return the words w with from &lt;= w &lt; to in the current version of this
+     * dictionary, see {@link DictionaryTree#wordsInRange(String, String)}
+     */
+    public Stream<String> wordsInRange(String from, String to) {
+        return root.wordsInRange(from, to);
+    }
+
+    /**
+     * @return the number of nodes in this dictionary
+     */
+    public int size() {
+        return root.size();
+    }
+
+    /**
+     * Compiles the current version of this dictionary into a {@link FrozenDictionary}.
+     *
+     * @return the compiled dictionary
+     */
+    public FrozenDictionary freeze() {
+        return root.freeze();
+    }
+
+    /**
+     * @return the current version of the tree, which is never changed, so it can
+     * be read or frozen while later changes are made
+     */
+    DictionaryTree version() {
+        return root;
+    }
+
+}
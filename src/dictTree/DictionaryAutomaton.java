@@ -0,0 +1,463 @@
+package src.dictTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.RandomAccess;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An immutable dictionary stored as a minimal acyclic automaton (a DAWG): words
+ * sharing an ending share the states of that ending, not just words sharing a
+ * beginning like in a {@link DictionaryTree}. It is built with the incremental
+ * algorithm of Daciuk et al. for sorted input.
+ * <p>
+ * Since a state is shared by many words, popularities can not be stored in the
+ * states. Instead every state knows how many words its subtree holds, which
+ * numbers the words in alphabetical order while following a path, and the
+ * popularities are stored by that number. The best popularity of the words below
+ * a state on a given path is a range maximum over the popularities, answered by
+ * a segment tree, which lets predict search best first like the tree.
+ */
+public class DictionaryAutomaton {
+
+    // Per state: whether it ends a word, how many words its subtree holds, and its
+    // edges, which are edgeStarts[s] until edgeStarts[s + 1], ordered by letter.
+    // State 0 is the start.
+    private final boolean[] finals;
+    private final int[] wordCounts;
+    private final int[] edgeStarts;
+    private final char[] edgeLabels;
+    private final int[] edgeTargets;
+
+    // The popularities of the words in alphabetical order, and a segment tree of
+    // their maximums whose leaves start at leafStart
+    private final int[] pops;
+    private final int[] maxPops;
+    private final int leafStart;
+
+    private DictionaryAutomaton(boolean[] finals, int[] wordCounts, int[] edgeStarts, char[] edgeLabels,
+                                int[] edgeTargets, int[] pops) {
+        this.finals = finals;
+        this.wordCounts = wordCounts;
+        this.edgeStarts = edgeStarts;
+        this.edgeLabels = edgeLabels;
+        this.edgeTargets = edgeTargets;
+        this.pops = pops;
+
+        int leaves = 1;
+        while (leaves < pops.length) {
+            leaves *= 2;
+        }
+        leafStart = leaves;
+        maxPops = new int[2 * leaves];
+        Arrays.fill(maxPops, Integer.MIN_VALUE);
+        System.arraycopy(pops, 0, maxPops, leaves, pops.length);
+        for (int i = leaves - 1; i > 0; i--) {
+            maxPops[i] = Math.max(maxPops[2 * i], maxPops[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Builds the minimal automaton of the given words. Like inserting every word in
+     * order with insert(word, popularity) into a new {@link DictionaryTree}, a word
+     * occurring more than once keeps its last popularity and the empty word is
+     * skipped.
+     *
+     * @param words        the words to insert, in any order
+     * @param popularities returns the popularity of the word at the given index
+     * @return the automaton holding the given words
+     */
+    public static DictionaryAutomaton build(List<String> words, IntUnaryOperator popularities) {
+        List<String> wordList = words instanceof RandomAccess ? words : new ArrayList<>(words);
+
+        // Sorts the indexes by word, equal words by index so the last one is kept
+        Integer[] order = new Integer[wordList.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (first, second) -> {
+            int compared = wordList.get(first).compareTo(wordList.get(second));
+            return compared != 0 ? compared : Integer.compare(first, second);
+        });
+
+        Builder builder = new Builder();
+        List<Integer> sortedPops = new ArrayList<>();
+        for (int i = 0; i < order.length; i++) {
+            String word = wordList.get(order[i]);
+            if (word.isEmpty())
+                continue;
+            if (i + 1 < order.length && word.equals(wordList.get(order[i + 1])))
+                continue;
+
+            builder.add(word);
+            sortedPops.add(popularities.applyAsInt(order[i]));
+        }
+
+        return builder.finish(sortedPops.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @return the number of states of this automaton, comparable to the number of
+     * nodes of a {@link DictionaryTree}
+     */
+    public int stateCount() {
+        return finals.length;
+    }
+
+    /**
+     * @return the number of transitions of this automaton
+     */
+    public int transitionCount() {
+        return edgeTargets.length;
+    }
+
+    /**
+     * @return the number of words in this automaton
+     */
+    public int wordCount() {
+        return pops.length;
+    }
+
+    /**
+     * Determines whether or not the specified word is in this automaton.
+     *
+     * @param word the word whose presence will be checked
+     * @return true if the specified word is stored in this automaton; false otherwise
+     */
+    public boolean contains(String word) {
+        int state = 0;
+
+        for (int i = 0; i < word.length() && state >= 0; i++) {
+            state = edge(state, word.charAt(i));
+            if (state >= 0)
+                state = edgeTargets[state];
+        }
+
+        return state >= 0 && finals[state];
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the specified prefix, the
+     * prefix itself first if it is a word, like {@link DictionaryTree#predict(String, int)}.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        List<String> predictedList = new ArrayList<>();
+
+        // Like the tree, the empty prefix only predicts itself, which is never a word here
+        if (prefix.length() == 0 || n <= 0)
+            return predictedList;
+
+        // Follows the prefix, counting the words alphabetically before it
+        int state = 0;
+        int rank = 0;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (finals[state])
+                rank++;
+
+            int edge = edge(state, prefix.charAt(i));
+            if (edge < 0)
+                return predictedList;
+            for (int e = edgeStarts[state]; e < edge; e++) {
+                rank += wordCounts[edgeTargets[e]];
+            }
+            state = edgeTargets[edge];
+        }
+
+        if (finals[state]) {
+            predictedList.add(prefix);
+            rank++;
+        }
+
+        // Best first over subtrees ranked by the best popularity of their range of
+        // words, words of equal popularity alphabetically, i.e. by number
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        addChildren(candidates, null, state, rank);
+
+        while (!candidates.isEmpty() && predictedList.size() < n) {
+            Candidate candidate = candidates.poll();
+
+            if (candidate.state < 0) {
+                predictedList.add(prefix + candidate.suffix());
+                continue;
+            }
+
+            int childRank = candidate.rank;
+            if (finals[candidate.state])
+                candidates.add(new Candidate(pops[childRank], childRank++, -1, candidate, (char) 0));
+            addChildren(candidates, candidate, candidate.state, childRank);
+        }
+
+        return predictedList;
+    }
+
+    /**
+     * @return all words stored in this automaton in alphabetical order
+     */
+    public List<String> allWords() {
+        List<String> listOfWords = new ArrayList<>(pops.length);
+        collectWords(0, new StringBuilder(), listOfWords);
+        return listOfWords;
+    }
+
+    private void collectWords(int state, StringBuilder word, List<String> listOfWords) {
+        if (finals[state])
+            listOfWords.add(word.toString());
+
+        for (int e = edgeStarts[state]; e < edgeStarts[state + 1]; e++) {
+            word.append(edgeLabels[e]);
+            collectWords(edgeTargets[e], word, listOfWords);
+            word.setLength(word.length() - 1);
+        }
+    }
+
+    /**
+     * Adds the subtrees of the children of the given state as candidates.
+     *
+     * @param rank the number of the first word below the state, after its own word
+     */
+    private void addChildren(PriorityQueue<Candidate> candidates, Candidate parent, int state, int rank) {
+        for (int e = edgeStarts[state]; e < edgeStarts[state + 1]; e++) {
+            int target = edgeTargets[e];
+            candidates.add(new Candidate(maxPop(rank, rank + wordCounts[target]), rank, target, parent, edgeLabels[e]));
+            rank += wordCounts[target];
+        }
+    }
+
+    /**
+     * @return the edge of the given state labelled with the given letter, or -1
+     */
+    private int edge(int state, char letter) {
+        int index = Arrays.binarySearch(edgeLabels, edgeStarts[state], edgeStarts[state + 1], letter);
+        return index >= 0 ? index : -1;
+    }
+
+    /**
+     * @return the highest popularity of the words numbered from (inclusive) to to
+     * (exclusive)
+     */
+    private int maxPop(int from, int to) {
+        int max = Integer.MIN_VALUE;
+
+        for (int low = from + leafStart, high = to + leafStart; low < high; low /= 2, high /= 2) {
+            if ((low & 1) == 1)
+                max = Math.max(max, maxPops[low++]);
+            if ((high & 1) == 1)
+                max = Math.max(max, maxPops[--high]);
+        }
+
+        return max;
+    }
+
+    /**
+     * A word (state -1) or the subtree below a state on the path of its parents,
+     * ranked by popularity and then number.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final int popularity;
+        private final int rank;
+        private final int state;
+        private final Candidate parent;
+        private final char letter;
+
+        Candidate(int popularity, int rank, int state, Candidate parent, char letter) {
+            this.popularity = popularity;
+            this.rank = rank;
+            this.state = state;
+            this.parent = parent;
+            this.letter = letter;
+        }
+
+        /**
+         * @return the letters from the prefix to this candidate
+         */
+        String suffix() {
+            StringBuilder suffix = new StringBuilder();
+            // A word shares the path of the subtree it was found in
+            for (Candidate c = state < 0 ? parent : this; c != null; c = c.parent) {
+                suffix.append(c.letter);
+            }
+            return suffix.reverse().toString();
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (popularity != other.popularity)
+                return Integer.compare(other.popularity, popularity);
+            if (rank != other.rank)
+                return Integer.compare(rank, other.rank);
+            // A word comes before the subtree starting with it
+            return Boolean.compare(state >= 0, other.state >= 0);
+        }
+    }
+
+    /**
+     * Builds the minimal automaton of words added in alphabetical order: the states
+     * of the previous word which are not shared with the next one can no longer
+     * change, so they are replaced by an equivalent registered state if there is
+     * one, or registered themselves.
+     */
+    private static final class Builder {
+
+        private final State start = new State();
+        private final Map<State, State> register = new HashMap<>();
+        private String previous = "";
+
+        void add(String word) {
+            int common = 0;
+            while (common < word.length() && common < previous.length()
+                    && word.charAt(common) == previous.charAt(common))
+                common++;
+
+            State state = start;
+            for (int i = 0; i < common; i++) {
+                state = state.lastChild();
+            }
+
+            if (state.size > 0)
+                replaceOrRegister(state);
+
+            for (int i = common; i < word.length(); i++) {
+                state = state.addChild(word.charAt(i));
+            }
+            state.isFinal = true;
+            previous = word;
+        }
+
+        private void replaceOrRegister(State state) {
+            State child = state.lastChild();
+            if (child.size > 0)
+                replaceOrRegister(child);
+
+            State equivalent = register.putIfAbsent(child, child);
+            if (equivalent != null)
+                state.targets[state.size - 1] = equivalent;
+        }
+
+        DictionaryAutomaton finish(int[] pops) {
+            if (start.size > 0)
+                replaceOrRegister(start);
+
+            // Numbers the states in depth first order, the start state first
+            Map<State, Integer> ids = new IdentityHashMap<>();
+            List<State> states = new ArrayList<>();
+            number(start, ids, states);
+
+            int edges = 0;
+            for (State state : states) {
+                edges += state.size;
+            }
+
+            boolean[] finals = new boolean[states.size()];
+            int[] wordCounts = new int[states.size()];
+            int[] edgeStarts = new int[states.size() + 1];
+            char[] edgeLabels = new char[edges];
+            int[] edgeTargets = new int[edges];
+
+            int edge = 0;
+            for (int id = 0; id < states.size(); id++) {
+                State state = states.get(id);
+                finals[id] = state.isFinal;
+                edgeStarts[id] = edge;
+                for (int i = 0; i < state.size; i++, edge++) {
+                    edgeLabels[edge] = state.labels[i];
+                    edgeTargets[edge] = ids.get(state.targets[i]);
+                }
+            }
+            edgeStarts[states.size()] = edge;
+
+            // Children are numbered after the first parent reaching them, but shared
+            // states can be reached from later parents too, so counts are computed
+            // depth first
+            Arrays.fill(wordCounts, -1);
+            countWords(0, finals, wordCounts, edgeStarts, edgeTargets);
+
+            return new DictionaryAutomaton(finals, wordCounts, edgeStarts, edgeLabels, edgeTargets, pops);
+        }
+
+        private static void number(State state, Map<State, Integer> ids, List<State> states) {
+            if (ids.containsKey(state))
+                return;
+
+            ids.put(state, states.size());
+            states.add(state);
+            for (int i = 0; i < state.size; i++) {
+                number(state.targets[i], ids, states);
+            }
+        }
+
+        private static int countWords(int state, boolean[] finals, int[] wordCounts, int[] edgeStarts,
+                                      int[] edgeTargets) {
+            if (wordCounts[state] < 0) {
+                int count = finals[state] ? 1 : 0;
+                for (int e = edgeStarts[state]; e < edgeStarts[state + 1]; e++) {
+                    count += countWords(edgeTargets[e], finals, wordCounts, edgeStarts, edgeTargets);
+                }
+                wordCounts[state] = count;
+            }
+
+            return wordCounts[state];
+        }
+    }
+
+    /**
+     * A state of the automaton under construction. Registered states never change,
+     * so they can be compared by their finality and their (already registered)
+     * targets.
+     */
+    private static final class State {
+
+        private boolean isFinal;
+        private char[] labels = new char[2];
+        private State[] targets = new State[2];
+        private int size;
+
+        State lastChild() {
+            return targets[size - 1];
+        }
+
+        State addChild(char letter) {
+            if (size == labels.length) {
+                labels = Arrays.copyOf(labels, size * 2);
+                targets = Arrays.copyOf(targets, size * 2);
+            }
+            labels[size] = letter;
+            targets[size] = new State();
+            return targets[size++];
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof State))
+                return false;
+
+            State state = (State) other;
+            if (isFinal != state.isFinal || size != state.size)
+                return false;
+            for (int i = 0; i < size; i++) {
+                if (labels[i] != state.labels[i] || targets[i] != state.targets[i])
+                    return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = isFinal ? 1 : 0;
+            for (int i = 0; i < size; i++) {
+                hash = 31 * hash + labels[i];
+                hash = 31 * hash + System.identityHashCode(targets[i]);
+            }
+            return hash;
+        }
+    }
+}
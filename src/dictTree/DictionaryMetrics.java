@@ -0,0 +1,158 @@
+package src.dictTree;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Latency histograms of the DictionaryTree operations, and how much of the tree
+ * each prediction had to look at. The measurements are shared by all
+ * dictionaries of the process.
+ *
+ * Measuring is off unless the JVM runs with -Ddictionary.metrics=true. The
+ * switch is a constant, so when it is off the JIT compiler drops the
+ * measuring code from the operations altogether. When it is on, the
+ * measurements are also registered over JMX as {@value #OBJECT_NAME}.
+ */
+public final class DictionaryMetrics implements DictionaryMetricsMXBean {
+
+    /**
+     * Whether the dictionary operations are measured, read once from the
+     * dictionary.metrics system property.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("dictionary.metrics");
+
+    /**
+     * The name the measurements are registered under over JMX.
+     */
+    public static final String OBJECT_NAME = "src.dictTree:type=DictionaryMetrics";
+
+    private static final DictionaryMetrics INSTANCE = new DictionaryMetrics();
+
+    private final Histogram predictLatency = new Histogram();
+    private final Histogram predictNodesVisited = new Histogram();
+    private final Histogram predictCandidates = new Histogram();
+    private final Histogram insertLatency = new Histogram();
+    private final Histogram containsLatency = new Histogram();
+    private final Histogram removeLatency = new Histogram();
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+            } catch (JMException e) {
+                throw new IllegalStateException("Could not register " + OBJECT_NAME, e);
+            }
+        }
+    }
+
+    private DictionaryMetrics() {
+    }
+
+    /**
+     * @return the measurements of the dictionary operations
+     */
+    public static DictionaryMetrics get() {
+        return INSTANCE;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return ENABLED;
+    }
+
+    @Override
+    public Histogram.Snapshot getPredictLatency() {
+        return predictLatency.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getPredictNodesVisited() {
+        return predictNodesVisited.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getPredictCandidates() {
+        return predictCandidates.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getInsertLatency() {
+        return insertLatency.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getContainsLatency() {
+        return containsLatency.snapshot();
+    }
+
+    @Override
+    public Histogram.Snapshot getRemoveLatency() {
+        return removeLatency.snapshot();
+    }
+
+    @Override
+    public void reset() {
+        predictLatency.reset();
+        predictNodesVisited.reset();
+        predictCandidates.reset();
+        insertLatency.reset();
+        containsLatency.reset();
+        removeLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "predict " + getPredictLatency() + "\n"
+                + "predict nodes visited " + getPredictNodesVisited() + "\n"
+                + "predict candidates " + getPredictCandidates() + "\n"
+                + "insert " + getInsertLatency() + "\n"
+                + "contains " + getContainsLatency() + "\n"
+                + "remove " + getRemoveLatency();
+    }
+
+    /**
+     * @return the time an operation starts, or 0 if nothing is measured
+     */
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * @return a tally for the work of a prediction, or null if nothing is measured
+     */
+    static Work work() {
+        return ENABLED ? new Work() : null;
+    }
+
+    static void predicted(long start, Work work) {
+        if (ENABLED) {
+            INSTANCE.predictLatency.record(System.nanoTime() - start);
+            INSTANCE.predictNodesVisited.record(work.nodes);
+            INSTANCE.predictCandidates.record(work.candidates);
+        }
+    }
+
+    static void inserted(long start) {
+        if (ENABLED)
+            INSTANCE.insertLatency.record(System.nanoTime() - start);
+    }
+
+    static void checked(long start) {
+        if (ENABLED)
+            INSTANCE.containsLatency.record(System.nanoTime() - start);
+    }
+
+    static void removed(long start) {
+        if (ENABLED)
+            INSTANCE.removeLatency.record(System.nanoTime() - start);
+    }
+
+    /**
+     * The nodes visited and candidates considered by one prediction.
+     */
+    static final class Work {
+        int nodes;
+        int candidates;
+    }
+}
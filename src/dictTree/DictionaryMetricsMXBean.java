@@ -0,0 +1,50 @@
+package src.dictTree;
+
+/**
+ * The measurements of {@link DictionaryMetrics} as seen over JMX, registered as
+ * {@value DictionaryMetrics#OBJECT_NAME} when they are enabled.
+ */
+public interface DictionaryMetricsMXBean {
+
+    /**
+     * @return true if the dictionary operations are measured
+     */
+    boolean isEnabled();
+
+    /**
+     * @return the latencies of predict(prefix, n) in nanoseconds
+     */
+    Histogram.Snapshot getPredictLatency();
+
+    /**
+     * @return the nodes visited per predict(prefix, n): the prefix followed, then
+     * every subtree taken apart by the search
+     */
+    Histogram.Snapshot getPredictNodesVisited();
+
+    /**
+     * @return the candidates considered per predict(prefix, n): words read from
+     * the cache, or words and subtrees queued by the search
+     */
+    Histogram.Snapshot getPredictCandidates();
+
+    /**
+     * @return the latencies of insert in nanoseconds
+     */
+    Histogram.Snapshot getInsertLatency();
+
+    /**
+     * @return the latencies of contains in nanoseconds
+     */
+    Histogram.Snapshot getContainsLatency();
+
+    /**
+     * @return the latencies of remove in nanoseconds
+     */
+    Histogram.Snapshot getRemoveLatency();
+
+    /**
+     * Forgets every measurement so far.
+     */
+    void reset();
+}
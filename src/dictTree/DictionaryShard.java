@@ -0,0 +1,36 @@
+package src.dictTree;
+
+import java.io.Closeable;
+
+/**
+ * One part of a {@link ShardedDictionary}, holding the words of one range. A
+ * shard may live in this JVM ({@link LocalShard}) or in another process.
+ * Implementations must allow calls from several threads at once.
+ */
+public interface DictionaryShard extends Closeable {
+
+    /**
+     * @param word the word whose presence will be checked
+     * @return true if the word is stored in this shard; false otherwise
+     */
+    boolean contains(String word);
+
+    /**
+     * Inserts the given word with the given popularity, overwriting the
+     * popularity if the word is already there.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    void insert(String word, int popularity);
+
+    /**
+     * Predicts the (at most) n most popular words of this shard with the given
+     * prefix, ordered like {@link DictionaryTree#predict(String, int)}.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the predicted words and their popularities
+     */
+    Prediction predict(String prefix, int n);
+}
@@ -1,24 +1,165 @@
 package src.dictTree;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class DictionaryTree {
 
+    /**
+     * The number of completions cached at each node when no ceiling is given.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 10;
+
+    // The popularity of a node which does not end a word
+    private static final int NO_WORD = Integer.MIN_VALUE;
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final DictionaryTree[] NO_CHILDREN = new DictionaryTree[0];
+    private static final String[] NO_WORDS = new String[0];
+    private static final int[] NO_POPS = new int[0];
+
+    // The number of prefixes predictAll predicts on one thread
+    private static final int PREDICT_RUN = 1024;
+    // Subtrees with fewer nodes are folded without forking
+    private static final int FOLD_SPLIT_THRESHOLD = 4096;
+
+    // The letters of the children in ascending order and the children at the same indexes
+    private char[] keys = NO_KEYS;
+    private DictionaryTree[] children = NO_CHILDREN;
+    private int pop = NO_WORD;
+    // The highest popularity of the words in this subtree, NO_WORD if there are none
+    private int maxPop = NO_WORD;
+    // The number of nodes in this subtree
+    private int nodes = 1;
+
+    // The (at most) cacheSize most popular full words in this subtree and their
+    // popularities, most popular first, equally popular words alphabetically.
+    // topPops of the root is always cacheSize long, which is where the cache size
+    // of the tree is kept, so the other nodes need no field for it; the number of
+    // cached words is the length of topWords.
+    private String[] topWords = NO_WORDS;
+    private int[] topPops;
+
+    /**
+     * Creates an empty dictionary which caches the {@value #DEFAULT_CACHE_SIZE}
+     * most popular completions at every node.
+     */
+    public DictionaryTree() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Creates an empty dictionary which caches the (at most) cacheSize most popular
+     * completions at every node. Predictions of up to cacheSize words are answered
+     * from the cache, larger ones fall back to a traversal of the whole subtree.
+     *
+     * @param cacheSize the number of completions cached per node, 0 disables the cache
+     */
+    public DictionaryTree(int cacheSize) {
+        this(rootPops(cacheSize));
+    }
+
+    /**
+     * Creates an empty node with the given popularities cache, which is only as
+     * long as the cache size at the root.
+     */
+    private DictionaryTree(int[] topPops) {
+        this.topPops = topPops;
+    }
+
+    private static int[] rootPops(int cacheSize) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("cacheSize must not be negative: " + cacheSize);
+        return new int[cacheSize];
+    }
+
+    /**
+     * Creates a copy of the given node which shares its children and caches.
+     */
+    private DictionaryTree(DictionaryTree node) {
+        keys = node.keys;
+        children = node.children;
+        pop = node.pop;
+        maxPop = node.maxPop;
+        nodes = node.nodes;
+        topWords = node.topWords;
+        topPops = node.topPops;
+    }
+
+    /**
+     * Builds a dictionary from the given words in parallel. The result is the same
+     * as inserting every word in order with insert(word, popularity) into a new
+     * dictionary, so a word occurring more than once keeps its last popularity.
+     *
+     * @param words        the words to insert
+     * @param popularities returns the popularity of the word at the given index
+     * @return the dictionary holding the given words
+     */
+    public static DictionaryTree build(List<String> words, IntUnaryOperator popularities) {
+        return build(words, popularities, DEFAULT_CACHE_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds a dictionary from the given words in parallel, see
+     * {@link #build(List, IntUnaryOperator)}. The words are split by their first
+     * letters into independent subtrees which are built as fork/join tasks of the
+     * given pool and grafted under the root.
+     *
+     * @param words        the words to insert
+     * @param popularities returns the popularity of the word at the given index
+     * @param cacheSize    the number of completions cached per node
+     * @param pool         the pool running the tasks
+     * @return the dictionary holding the given words
+     */
+    public static DictionaryTree build(List<String> words, IntUnaryOperator popularities, int cacheSize,
+                                       ForkJoinPool pool) {
+        // Random access is needed to read the words of a subtree by their indexes
+        List<String> wordList = words instanceof RandomAccess ? words : new ArrayList<>(words);
+        int[] indexes = new int[wordList.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = i;
+        }
 
-    private Map<Character, DictionaryTree> children = new LinkedHashMap<>();
-    private Optional<Integer> pop = Optional.empty();
+        return pool.invoke(new BuildTask(wordList, popularities, cacheSize, indexes, new int[indexes.length],
+                0, indexes.length, 0));
+    }
 
     /**
      * Returns the popularity of the word.
      * If the word is not there, returns -1.
      */
     public int getPop() {
-        return pop.orElse(-1);
+        return pop == NO_WORD ? -1 : pop;
     }
 
+    /**
+     * Returns the popularity of the given word.
+     * If the word is not there, returns -1.
+     *
+     * @param word the word whose popularity is returned
+     */
+    public int getPop(CharSequence word) {
+        DictionaryTree node = followPrefix(word);
+        return node == null ? -1 : node.getPop();
+    }
+
+    /**
+     * Sets the popularity of the word ending at this node. Integer.MIN_VALUE is
+     * reserved to mark nodes which do not end a word.
+     *
+     * @param popularity the new popularity
+     */
     public void setPop(int popularity) {
-        pop = Optional.of(popularity);
+        pop = popularity;
+        refreshCache(this, "", 0, cacheSize());
     }
 
     /**
@@ -28,43 +169,18 @@ public class DictionaryTree {
      * @param word the word to insert
      */
     public void insert(String word) {
+        long start = DictionaryMetrics.start();
         if (word.length() > 0) {
-            boolean exists = false;
-            Character firstLetter = word.charAt(0);
-
-            if (word.length() > 1) {
-                // Goes through the tree letter by letter
-                for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                    if (child.getKey().equals(firstLetter)) {
-                        child.getValue().insert(word.substring(1));
-                        exists = true;
-                    }
-                }
-                // if it can not find the letter it creates a node to store it and calls the
-                // insert function again
-                if (!exists) {
-                    children.put(firstLetter, new DictionaryTree());
-                    children.get(firstLetter).insert(word.substring(1));
-                }
+            DictionaryTree[] path = insertPath(word);
 
-            } else {
-                for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                    // If the word already exists do nothing. else insert it
-                    if (child.getKey().equals(firstLetter)) {
-                        exists = true;
-                        if (!child.getValue().pop.isPresent())
-                            child.getValue().setPop(-1);
-                    }
-                }
+            // If the word already exists do nothing. else insert it with a popularity of -1
+            // (so that it would not interfere with the insert(word, popularity) function)
+            if (path[word.length()].pop == NO_WORD)
+                path[word.length()].pop = -1;
 
-                if (!exists) {
-                    // if the word does not exist create a word with a popularity of -1 (so that it
-                    // would not interfere with the insert(word, popularity) function)
-                    children.put(firstLetter, new DictionaryTree());
-                    children.get(firstLetter).setPop(-1);
-                }
-            }
+            refreshPath(path, word, word.length());
         }
+        DictionaryMetrics.inserted(start);
     }
 
     /**
@@ -75,37 +191,231 @@ public class DictionaryTree {
      * @param popularity the popularity of the inserted word
      */
     public void insert(String word, int popularity) {
+        long start = DictionaryMetrics.start();
         if (word.length() > 0) {
-            boolean exists = false;
-            Character firstLetter = new Character(word.charAt(0));
-
-            if (word.length() > 1) {
-                for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                    if (child.getKey().equals(firstLetter)) {
-                        child.getValue().insert(word.substring(1), popularity);
-                        exists = true;
-                    }
-                }
+            DictionaryTree[] path = insertPath(word);
+            path[word.length()].pop = popularity;
+            refreshPath(path, word, word.length());
+        }
+        DictionaryMetrics.inserted(start);
+    }
 
-                if (!exists) {
-                    children.put(firstLetter, new DictionaryTree());
-                    children.get(firstLetter).insert(word.substring(1), popularity);
-                }
+    /**
+     * Goes through the tree letter by letter, creating a node to store a letter
+     * whenever it can not find it.
+     *
+     * @param word the word whose nodes are found or created
+     * @return the nodes on the path of the word, this node first
+     */
+    private DictionaryTree[] insertPath(String word) {
+        DictionaryTree[] path = new DictionaryTree[word.length() + 1];
+        path[0] = this;
 
-            } else {
-                for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                    if (child.getKey().equals(firstLetter)) {
-                        exists = true;
-                        child.getValue().setPop(popularity);
-                    }
-                }
+        for (int i = 0; i < word.length(); i++) {
+            path[i + 1] = path[i].childOrCreate(word.charAt(i));
+        }
 
-                if (!exists) {
-                    children.put(firstLetter, new DictionaryTree());
-                    children.get(firstLetter).setPop(popularity);
-                }
+        return path;
+    }
+
+    /**
+     * Returns a copy of this tree in which the nodes on the path of the given word,
+     * as far as it exists, are copies as well and everything else is shared.
+     * Changes to the word in the copy leave this tree untouched, as every change
+     * only writes to the nodes on the path of the word and replaces (rather than
+     * writes into) their arrays.
+     *
+     * @param word the word whose path is copied
+     * @return the root of the copy
+     */
+    DictionaryTree copyPath(CharSequence word) {
+        DictionaryTree copy = new DictionaryTree(this);
+        DictionaryTree node = copy;
+
+        for (int i = 0; i < word.length(); i++) {
+            int index = Arrays.binarySearch(node.keys, word.charAt(i));
+            if (index < 0)
+                break;
+
+            node.children = node.children.clone();
+            node.children[index] = new DictionaryTree(node.children[index]);
+            node = node.children[index];
+        }
+
+        return copy;
+    }
+
+    /**
+     * Returns a copy of this tree in which the given words have the given
+     * popularities, inserting the words which are not there yet. Like
+     * {@link #copyPath(CharSequence)} everything off the paths of the words is
+     * shared with this tree, but as the words are sorted each node on their paths
+     * is only copied once, and its cache only rebuilt once all words through it
+     * are in.
+     *
+     * @param words        the words in ascending order, without repetitions
+     * @param popularities the popularities of the words at the same indexes
+     * @return the root of the copy
+     */
+    DictionaryTree withPops(String[] words, int[] popularities) {
+        DictionaryTree copy = new DictionaryTree(this);
+        int cacheSize = cacheSize();
+        DictionaryTree[] path = new DictionaryTree[16];
+        path[0] = copy;
+        String previous = "";
+
+        for (int w = 0; w < words.length; w++) {
+            String word = words[w];
+            if (word.length() == 0)
+                continue;
+
+            // The nodes below the letters shared with the previous word get no more words
+            int common = 0;
+            while (common < previous.length() && common < word.length() && word.charAt(common) == previous.charAt(common))
+                common++;
+            for (int i = previous.length(); i > common; i--) {
+                refreshCache(path[i], previous, i, cacheSize);
+            }
+
+            if (path.length <= word.length())
+                path = Arrays.copyOf(path, word.length() + 1);
+            for (int i = common; i < word.length(); i++) {
+                path[i + 1] = path[i].copyChild(word.charAt(i));
+            }
+            path[word.length()].pop = popularities[w];
+            previous = word;
+        }
+
+        for (int i = previous.length(); i >= 0; i--) {
+            refreshCache(path[i], previous, i, cacheSize);
+        }
+        return copy;
+    }
+
+    /**
+     * Replaces the child reached through the given letter by a copy of it,
+     * creating it if there is none.
+     *
+     * @param letter the letter of the child
+     * @return the copied or newly created child
+     */
+    private DictionaryTree copyChild(char letter) {
+        int index = Arrays.binarySearch(keys, letter);
+        if (index < 0)
+            return childOrCreate(letter);
+
+        children = children.clone();
+        children[index] = new DictionaryTree(children[index]);
+        return children[index];
+    }
+
+    /**
+     * Returns a copy of this tree in which the popularity of every word has been
+     * changed by the given function, with the caches rebuilt to match.
+     *
+     * @param popularities returns the new popularity of a word from its old one,
+     *                     which must not be Integer.MIN_VALUE
+     * @return the root of the copy
+     */
+    DictionaryTree mapPops(IntUnaryOperator popularities) {
+        DictionaryTree copy = copyWithPops(this, popularities);
+        copy.refreshCaches(new StringBuilder(), cacheSize());
+        return copy;
+    }
+
+    private static DictionaryTree copyWithPops(DictionaryTree node, IntUnaryOperator popularities) {
+        DictionaryTree copy = new DictionaryTree(node);
+        if (node.pop != NO_WORD)
+            copy.pop = popularities.applyAsInt(node.pop);
+
+        if (node.children.length > 0) {
+            copy.children = new DictionaryTree[node.children.length];
+            for (int i = 0; i < node.children.length; i++) {
+                copy.children[i] = copyWithPops(node.children[i], popularities);
             }
         }
+        return copy;
+    }
+
+    /**
+     * @param letter the letter of the child
+     * @return the child reached through the given letter, or null if there is none
+     */
+    private DictionaryTree child(char letter) {
+        int index = Arrays.binarySearch(keys, letter);
+        return index >= 0 ? children[index] : null;
+    }
+
+    /**
+     * @return the number of completions cached per node, only known at the root
+     */
+    int cacheSize() {
+        return topPops.length;
+    }
+
+    /**
+     * Returns the child reached through the given letter, creating it (in order of
+     * the letters) if there is none.
+     *
+     * @param letter the letter of the child
+     * @return the existing or newly created child
+     */
+    private DictionaryTree childOrCreate(char letter) {
+        int index = Arrays.binarySearch(keys, letter);
+        if (index >= 0)
+            return children[index];
+
+        // The arrays are kept exactly as long as the number of children
+        index = -index - 1;
+        char[] newKeys = new char[keys.length + 1];
+        DictionaryTree[] newChildren = new DictionaryTree[children.length + 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(keys, index, newKeys, index + 1, keys.length - index);
+        System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+        newKeys[index] = letter;
+        newChildren[index] = new DictionaryTree(NO_POPS);
+        keys = newKeys;
+        children = newChildren;
+        return newChildren[index];
+    }
+
+    /**
+     * Deletes the child reached through the given letter, if there is one.
+     *
+     * @param letter the letter of the child
+     */
+    private void removeChild(char letter) {
+        int index = Arrays.binarySearch(keys, letter);
+        if (index < 0)
+            return;
+
+        if (keys.length == 1) {
+            keys = NO_KEYS;
+            children = NO_CHILDREN;
+            return;
+        }
+
+        char[] newKeys = new char[keys.length - 1];
+        DictionaryTree[] newChildren = new DictionaryTree[children.length - 1];
+        System.arraycopy(keys, 0, newKeys, 0, index);
+        System.arraycopy(children, 0, newChildren, 0, index);
+        System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+        System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+        keys = newKeys;
+        children = newChildren;
+    }
+
+    /**
+     * Inserts the letters of the given word from the given index onwards below this
+     * node, without refreshing any completion caches.
+     */
+    private void insertFrom(String word, int index, int popularity) {
+        DictionaryTree node = this;
+        for (int i = index; i < word.length(); i++) {
+            node = node.childOrCreate(word.charAt(i));
+        }
+        node.pop = popularity;
     }
 
     /**
@@ -117,51 +427,52 @@ public class DictionaryTree {
      * @return whether or not the parent can delete this node from its children
      */
     public boolean remove(String word) {
-        boolean removed = false;
-        char key = 0;
+        long start = DictionaryMetrics.start();
+        try {
+            return removeWord(word);
+        } finally {
+            DictionaryMetrics.removed(start);
+        }
+    }
 
+    /**
+     * Removes the specified word from this dictionary, see {@link #remove(String)}.
+     */
+    private boolean removeWord(String word) {
         // if the length of the word is 0, there is no word to be deleted so just return
         // false
-        if (word.length() > 0) {
-            Character firstLetter = word.charAt(0);
-            // if the word is more than one symbol long, follow the branch with every letter
-            // of the word in order
-            if (word.length() > 1) {
-                for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                    if (child.getKey().equals(firstLetter)) {
-                        // this recursively calls remove function of the children and stores the value
-                        // to output whether or not the word was removed
-                        removed = child.getValue().remove(word.substring(1));
-                        // if the resulting tree has no children and is not storing any word, then it is
-                        // safe to remove it
-                        if (child.getValue().children.isEmpty() && !child.getValue().pop.isPresent())
-                            key = child.getKey();
+        if (word.length() == 0)
+            return false;
+
+        // follow the branch with every letter of the word in order
+        DictionaryTree[] path = new DictionaryTree[word.length() + 1];
+        path[0] = this;
+        for (int i = 0; i < word.length(); i++) {
+            path[i + 1] = path[i].child(word.charAt(i));
+            if (path[i + 1] == null)
+                return false;
+        }
 
-                    }
-                }
-                // the removing call needs to be outside the for loop because of
-                // ConcurrentModificationExceptions
-                if (key != 0)
-                    children.remove(key);
+        DictionaryTree last = path[word.length()];
+        if (last.keys.length > 0) {
+            // The node of the last letter is still needed by longer words, so only the
+            // word ending there is deleted
+            last.pop = NO_WORD;
+            refreshPath(path, word, word.length());
+            return false;
+        }
 
-            } else {
-                for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                    if (child.getKey().equals(firstLetter)) {
-                        // Returns true if the word can be deleted and deletes the node of the last
-                        // letter
-                        if (child.getValue().children.isEmpty()) {
-                            children.remove(child.getKey());
-                            return true;
-                        } else {
-                            child.getValue().pop = Optional.empty();
-                            return false;
-                        }
-                    }
-                }
-            }
+        // Deletes the node of the last letter, then every node above it which has no
+        // children and is not storing any word, as it is safe to remove it
+        int depth = word.length() - 1;
+        path[depth].removeChild(word.charAt(depth));
+        while (depth > 0 && path[depth].keys.length == 0 && path[depth].pop == NO_WORD) {
+            depth--;
+            path[depth].removeChild(word.charAt(depth));
         }
 
-        return removed;
+        refreshPath(path, word, depth);
+        return true;
     }
 
     /**
@@ -170,23 +481,22 @@ public class DictionaryTree {
      * @param word the word whose presence will be checked
      * @return true if the specified word is stored in this tree; false otherwise
      */
-    public boolean contains(String word) {
-        // Only return true if popularity value is present
-        if (word.length() == 0 && pop.isPresent())
-            return true;
-
-        // Follows the branch of the word until there are no letters to follow
-        if (word.length() > 0) {
-            Character firstLetter = word.charAt(0);
-
-            for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                if (child.getKey().equals(firstLetter)) {
-                    return child.getValue().contains(word.substring(1));
-                }
-            }
-        }
+    public boolean contains(CharSequence word) {
+        long start = DictionaryMetrics.start();
+        boolean found = containsWord(word);
+        DictionaryMetrics.checked(start);
+        return found;
+    }
 
-        return false;
+    /**
+     * Determines whether or not the specified word is in this dictionary like
+     * {@link #contains(CharSequence)}, without measuring it, for the checks the
+     * dictionaries make on their own behalf.
+     */
+    boolean containsWord(CharSequence word) {
+        // Only return true if popularity value is present
+        DictionaryTree node = followPrefix(word);
+        return node != null && node.pop != NO_WORD;
     }
 
     /**
@@ -198,128 +508,290 @@ public class DictionaryTree {
         Optional<String> predictedWord = Optional.empty();
 
         // Checks if the tree already contains the given prefix and returns it if so
-        if (contains(prefix)) {
+        if (containsWord(prefix)) {
             return Optional.of(prefix);
         }
 
-        Optional<DictionaryTree> tree = followPrefix(prefix);
-
-        if (tree.isPresent()) {
-            String ending = mostPopularWord(tree.get()).split("_")[0];
-            // Adds returned ending to the prefix
-            if (!ending.equals(""))
-                predictedWord = Optional.of(prefix + ending);
+        DictionaryTree tree = prefix.length() > 0 ? followPrefix(prefix) : null;
 
+        if (tree != null) {
+            List<Candidate> mostPopular = mostPopular(tree, 1, false, null);
+            if (!mostPopular.isEmpty())
+                predictedWord = Optional.of(mostPopular.get(0).word(prefix));
         }
 
         return predictedWord;
     }
 
-    private Optional<DictionaryTree> followPrefix(String prefix) {
-        Optional<DictionaryTree> tree = Optional.empty();
-
-        if (prefix.length() > 0) {
-            Character firstLetter = prefix.charAt(0);
+    /**
+     * Follows the letters of the given prefix from this node.
+     *
+     * @param prefix the letters to follow
+     * @return the node reached, or null if the tree has no such branch
+     */
+    private DictionaryTree followPrefix(CharSequence prefix) {
+        DictionaryTree node = this;
 
-            for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
 
-                // Return the tree of a child that has the last letter of the prefix as a key
-                if (child.getKey().equals(firstLetter) && prefix.length() == 1) {
-                    tree = Optional.of(child.getValue());
+        return node;
+    }
 
-                    // Keep going through the tree if there are more letters to go through
-                } else if (child.getKey().equals(firstLetter)) {
-                    return child.getValue().followPrefix(prefix.substring(1));
-                }
-            }
+    /**
+     * Follows the letters of the given prefix from this node like
+     * {@link #followPrefix(CharSequence)}, adding the nodes it reached to the given
+     * tally.
+     *
+     * @param prefix the letters to follow
+     * @param work   the tally of a prediction, or null
+     * @return the node reached, or null if the tree has no such branch
+     */
+    private DictionaryTree followPrefix(CharSequence prefix, DictionaryMetrics.Work work) {
+        if (work == null)
+            return followPrefix(prefix);
+
+        DictionaryTree node = this;
+        for (int i = 0; i < prefix.length(); i++) {
+            node = node.child(prefix.charAt(i));
+            if (node == null)
+                return null;
+            work.nodes++;
         }
-        return tree;
+
+        return node;
     }
 
+    /**
+     * Finds the most popular word of the given subtree, including the word ended
+     * by its root, the alphabetically first one if several are equally popular.
+     *
+     * @param dicTree the subtree searched
+     * @return the most popular word without the letters leading to the subtree,
+     * followed by "_" and its popularity, or "_0" if the subtree holds no word
+     */
     public String mostPopularWord(DictionaryTree dicTree) {
-        DictionaryTree tree = dicTree;
-        String mostPopular = "_" + 0;
-        String word;
-        String keyOfPop = "";
-
-        if (!tree.children.isEmpty()) {
-            // Go through the tree to find all the words and their popularity
-            for (Map.Entry<Character, DictionaryTree> child : tree.children.entrySet()) {
-                word = child.getValue().mostPopularWord(child.getValue());
-                // the words are returned in format: word_popularity(int) so to determine the
-                // most popular word the string needs to be split and the popularity values
-                // compared. The one with the higher value are more popular and is stored to be
-                // returned
-                if (Integer.parseInt(word.split("_")[1]) >= Integer.parseInt(mostPopular.split("_")[1])) {
-                    mostPopular = word;
-                    keyOfPop = Character.toString(child.getKey());
-                }
-            }
+        List<Candidate> mostPopular = mostPopular(dicTree, 1, true, null);
+        if (mostPopular.isEmpty())
+            return "_" + 0;
 
-            // Another check is made to see if there is a word ending at this node. If so,
-            // if its value is higher that the most popular returned word, it is returned
-            // instead
-            if (pop.isPresent() && pop.get() >= Integer.parseInt(mostPopular.split("_")[1]))
-                return "_" + pop.get();
+        return mostPopular.get(0).word("") + "_" + mostPopular.get(0).popularity;
+    }
 
-            // keyOfPop is a value of the node that was from the most popular word and is
-            // added to the word to extend it
-            return keyOfPop + mostPopular;
+    /**
+     * Finds the (at most) n most popular words of the given subtree, ordered by
+     * popularity and then alphabetically. The subtree is searched best first: a
+     * priority queue holds words and whole subtrees, the latter ranked by the
+     * highest popularity they hold, so the search stops as soon as n words are
+     * out and only visits nodes which could still hold one of them. The words
+     * are only turned into strings by the caller.
+     *
+     * @param tree           the subtree searched
+     * @param n              the maximum number of words found
+     * @param includeOwnWord whether the word ended by the root of the subtree counts
+     * @param work           the tally the subtrees taken apart and the candidates
+     *                       queued are added to, or null
+     * @return the (at most) n most popular words of the subtree, as found by the search
+     */
+    private static List<Candidate> mostPopular(DictionaryTree tree, int n, boolean includeOwnWord,
+                                               DictionaryMetrics.Work work) {
+        List<Candidate> mostPopular = new ArrayList<>();
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+
+        // Every path starts at the root of the subtree, which is a candidate itself
+        // only if its own word counts
+        Candidate root = new Candidate(tree, null, (char) 0, false);
+        if (includeOwnWord)
+            candidates.add(root);
+        else
+            Candidate.addChildren(candidates, root);
+
+        int polled = 0;
+        int expanded = 0;
+        while (mostPopular.size() < n && !candidates.isEmpty()) {
+            Candidate candidate = candidates.poll();
+            polled++;
+
+            if (candidate.isWord) {
+                mostPopular.add(candidate);
+            } else {
+                expanded++;
+                if (candidate.node.pop != NO_WORD)
+                    candidates.add(new Candidate(candidate.node, candidate.parent, candidate.letter, true));
+                Candidate.addChildren(candidates, candidate);
+            }
         }
 
-        // If a node has no children, it is an ending of a word so it will have
-        // popularity
-        return "_" + pop.get();
+        if (work != null) {
+            work.nodes += expanded;
+            work.candidates += polled + candidates.size();
+        }
+        return mostPopular;
     }
 
-    private List<String> mostPopularList(DictionaryTree dicTree, int n) {
-        DictionaryTree tree = dicTree;
-        List<String> mostPopularList = new LinkedList<>();
-        List<String> listOfReturnedWords;
+    /**
+     * A word or a whole subtree found by {@link #mostPopular},
+     * linked to the candidate it was found in to spell its word when needed.
+     * Candidates are ordered by popularity (the highest one of a subtree), then
+     * alphabetically, then a word before the subtree of the same node. A word
+     * alphabetically before a subtree is also before every word in it, so equally
+     * popular words come out in alphabetical order.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final DictionaryTree node;
+        private final Candidate parent;
+        private final char letter;
+        private final boolean isWord;
+        private final int popularity;
+        private final int depth;
+
+        Candidate(DictionaryTree node, Candidate parent, char letter, boolean isWord) {
+            this.node = node;
+            this.parent = parent;
+            this.letter = letter;
+            this.isWord = isWord;
+            this.popularity = isWord ? node.pop : node.maxPop;
+            this.depth = parent == null ? 0 : parent.depth + 1;
+        }
 
-        if (!tree.children.isEmpty()) {
-            // goes through each of the children and collects their list of words
-            for (Map.Entry<Character, DictionaryTree> child : tree.children.entrySet()) {
-                listOfReturnedWords = child.getValue().mostPopularList(child.getValue(), n);
+        /**
+         * Adds the subtrees of the children of the given subtree which hold words.
+         */
+        static void addChildren(PriorityQueue<Candidate> candidates, Candidate parent) {
+            DictionaryTree node = parent.node;
+            for (int i = 0; i < node.keys.length; i++) {
+                if (node.children[i].maxPop != NO_WORD)
+                    candidates.add(new Candidate(node.children[i], parent, node.keys[i], false));
+            }
+        }
 
-                // For every item in the list adds the key of their node and adds everything to a
-                // list of all of the returned words
-                for (String listOfReturnedWord : listOfReturnedWords) {
-                    mostPopularList.add(child.getKey() + listOfReturnedWord);
-                }
+        /**
+         * @return the given prefix followed by the letters leading to this candidate
+         */
+        String word(String prefix) {
+            char[] word = new char[prefix.length() + depth];
+            prefix.getChars(0, prefix.length(), word, 0);
 
+            int i = word.length;
+            for (Candidate c = this; i > prefix.length(); c = c.parent) {
+                word[--i] = c.letter;
             }
 
-            // If at that node there is a word ending and its popularity is bigger than the
-            // least popular word of the list(which is always the last one as the method
-            // keeps the list sorted based on popularity), it gets added to the list
-            if (pop.isPresent()
-                    && pop.get() > Integer.parseInt(mostPopularList.get(mostPopularList.size() - 1).split("_")[1])) {
-                mostPopularList.remove(mostPopularList.size() - 1);
-                mostPopularList.add("_" + pop.get());
+            return new String(word);
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (popularity != other.popularity)
+                return Integer.compare(other.popularity, popularity);
+
+            // Compares the letters of both paths from where they part, or the
+            // shorter path first if one continues the other
+            Candidate first = this;
+            Candidate second = other;
+            while (first.depth > second.depth)
+                first = first.parent;
+            while (second.depth > first.depth)
+                second = second.parent;
+
+            int compared = 0;
+            while (first.node != second.node) {
+                compared = Character.compare(first.letter, second.letter);
+                first = first.parent;
+                second = second.parent;
             }
 
-            // Sorts the list based on popularity
-            mostPopularList.sort((firstString, secondString) -> {
-                Integer first = Integer.parseInt(firstString.split("_")[1]);
-                Integer second = Integer.parseInt(secondString.split("_")[1]);
+            if (compared != 0)
+                return compared;
+            if (depth != other.depth)
+                return Integer.compare(depth, other.depth);
+            return Boolean.compare(other.isWord, isWord);
+        }
+    }
 
-                return second.compareTo(first);
-            });
+    /**
+     * Recomputes the completion caches of the nodes on the path of the given word,
+     * deepest node first, so that each node can merge the caches of its children.
+     *
+     * @param path  the nodes on the path of the word, this node first
+     * @param word  the word which was inserted, removed or had its popularity changed
+     * @param depth the depth of the deepest node still in the tree
+     */
+    private void refreshPath(DictionaryTree[] path, String word, int depth) {
+        for (int i = depth; i >= 0; i--) {
+            refreshCache(path[i], word, i, cacheSize());
+        }
+    }
 
-            // The top n members of the list by their popularity gets returned
-            if (mostPopularList.size() > n)
-                mostPopularList = mostPopularList.subList(0, n);
+    /**
+     * Rebuilds the completion cache, highest popularity and size of the given node
+     * from its own word and the caches of its children.
+     *
+     * @param node      the node whose cache is rebuilt
+     * @param word      a word going through the node
+     * @param depth     the depth of the node, i.e. the length of the word it ends
+     * @param cacheSize the maximum number of completions cached
+     */
+    private static void refreshCache(DictionaryTree node, String word, int depth, int cacheSize) {
+        String[] words = new String[cacheSize];
+        int[] pops = new int[cacheSize];
+        int size = 0;
+
+        node.maxPop = node.pop;
+        node.nodes = 1;
+        for (DictionaryTree child : node.children) {
+            node.maxPop = Math.max(node.maxPop, child.maxPop);
+            node.nodes += child.nodes;
+        }
 
-            return mostPopularList;
+        if (node.pop != NO_WORD)
+            size = offer(words, pops, size, word.substring(0, depth), node.pop);
+
+        for (DictionaryTree child : node.children) {
+            for (int i = 0; i < child.topWords.length; i++) {
+                // The caches are sorted, so the rest of this child's words would be rejected too
+                if (size == cacheSize
+                        && (size == 0 || !isBefore(child.topWords[i], child.topPops[i], words[size - 1], pops[size - 1])))
+                    break;
+                size = offer(words, pops, size, child.topWords[i], child.topPops[i]);
+            }
         }
 
-        // If a node has no children bus has a popularity it is the ending of the word
-        // and gets added to the list
-        if (pop.isPresent())
-            mostPopularList.add("_" + pop.get());
+        node.topWords = size == cacheSize ? words : Arrays.copyOf(words, size);
+        // The root keeps the whole popularities array, as its length is the cache size
+        node.topPops = size == cacheSize || depth == 0 ? pops : Arrays.copyOf(pops, size);
+    }
+
+    /**
+     * Inserts the given candidate into the sorted, bounded arrays of cached words if
+     * it is popular enough, dropping the least popular word if they are full.
+     *
+     * @return the number of cached words after the insertion
+     */
+    private static int offer(String[] words, int[] pops, int size, String word, int popularity) {
+        int i = size;
+        while (i > 0 && isBefore(word, popularity, words[i - 1], pops[i - 1]))
+            i--;
+
+        if (i == words.length)
+            return size;
+
+        int newSize = Math.min(size + 1, words.length);
+        System.arraycopy(words, i, words, i + 1, newSize - i - 1);
+        System.arraycopy(pops, i, pops, i + 1, newSize - i - 1);
+        words[i] = word;
+        pops[i] = popularity;
+        return newSize;
+    }
 
-        return mostPopularList;
+    /**
+     * @return true if the first word ranks before the second one, i.e. it is more
+     * popular or equally popular and alphabetically first
+     */
+    static boolean isBefore(String word, int popularity, String otherWord, int otherPopularity) {
+        return popularity > otherPopularity || (popularity == otherPopularity && word.compareTo(otherWord) < 0);
     }
 
     /**
@@ -327,30 +799,436 @@ public class DictionaryTree {
      * specified prefix. If no word with the specified prefix is found, an empty
      * list is returned.
      *
+     * The prefix itself comes first if it is a word. Predictions of at most the
+     * cache size of this dictionary are read from the cache of the prefix node,
+     * larger ones search the subtree best first.
+     *
      * @param prefix the prefix of the words found
      * @return the (at most) n most popular words with the specified prefix
      */
 
     public List<String> predict(String prefix, int n) {
-        Optional<DictionaryTree> tree = followPrefix(prefix);
+        long start = DictionaryMetrics.start();
+        DictionaryMetrics.Work work = DictionaryMetrics.work();
+
+        // The empty prefix has no completions, it can only be a word itself
+        List<String> predicted = predict(prefix.length() > 0 ? followPrefix(prefix, work) : null, prefix, n, work);
+
+        if (work != null)
+            DictionaryMetrics.predicted(start, work);
+        return predicted;
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the given prefix, see
+     * {@link #predict(String, int)}, once the node of the prefix is known.
+     *
+     * @param tree   the node reached by the prefix, or null if there is none or the
+     *               prefix is empty
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @param work   the tally the work of the prediction is added to, or null
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    private List<String> predict(DictionaryTree tree, String prefix, int n, DictionaryMetrics.Work work) {
         List<String> predictedList = new LinkedList<>();
 
-        if (tree.isPresent()) {
-            predictedList = mostPopularList(tree.get(), n);
+        if (tree != null && n <= cacheSize()) {
+            // The cache also holds the prefix itself, which is added below
+            int i = 0;
+            for (; i < tree.topWords.length && predictedList.size() < n; i++) {
+                if (tree.topWords[i].length() > prefix.length())
+                    predictedList.add(tree.topWords[i]);
+            }
+            if (work != null)
+                work.candidates += i;
+        } else if (tree != null) {
+            for (Candidate candidate : mostPopular(tree, n, false, work)) {
+                predictedList.add(candidate.word(prefix));
+            }
         }
 
-        if (contains(prefix)) {
-            predictedList.add(0, "_0");
+        // The prefix node is already known, so this does not walk the tree again
+        if (prefix.length() > 0 ? tree != null && tree.pop != NO_WORD : pop != NO_WORD) {
+            predictedList.add(0, prefix);
             if (predictedList.size() > n)
                 predictedList = predictedList.subList(0, n);
         }
 
-        for (ListIterator<String> i = predictedList.listIterator(); i.hasNext(); ) {
-            String element = i.next();
-            i.set(prefix + element.split("_")[0]);
+        return predictedList;
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the given prefix like
+     * {@link #predict(String, int)}, along with their popularities, so predictions
+     * of different dictionaries can be merged.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the predicted words and their popularities
+     */
+    public Prediction predictWithPops(String prefix, int n) {
+        long start = DictionaryMetrics.start();
+        DictionaryMetrics.Work work = DictionaryMetrics.work();
+        DictionaryTree tree = prefix.length() > 0 ? followPrefix(prefix, work) : null;
+        List<String> words = new ArrayList<>();
+        int[] pops = new int[Math.min(Math.max(n, 0), DEFAULT_CACHE_SIZE)];
+
+        // The prefix node is already known, so its word comes first without walking the tree again
+        int ownPop = prefix.length() > 0 ? (tree != null ? tree.pop : NO_WORD) : pop;
+        if (ownPop != NO_WORD && n > 0)
+            pops = addPrediction(words, pops, prefix, ownPop);
+
+        if (tree != null && n <= cacheSize()) {
+            int i = 0;
+            for (; i < tree.topWords.length && words.size() < n; i++) {
+                if (tree.topWords[i].length() > prefix.length())
+                    pops = addPrediction(words, pops, tree.topWords[i], tree.topPops[i]);
+            }
+            if (work != null)
+                work.candidates += i;
+        } else if (tree != null && words.size() < n) {
+            for (Candidate candidate : mostPopular(tree, n - words.size(), false, work)) {
+                pops = addPrediction(words, pops, candidate.word(prefix), candidate.popularity);
+            }
         }
 
-        return predictedList;
+        if (work != null)
+            DictionaryMetrics.predicted(start, work);
+        return new Prediction(prefix, words, Arrays.copyOf(pops, words.size()));
+    }
+
+    /**
+     * Adds a word to a prediction, growing the array of popularities if needed.
+     *
+     * @return the array of popularities
+     */
+    private static int[] addPrediction(List<String> words, int[] pops, String word, int popularity) {
+        if (words.size() == pops.length)
+            pops = Arrays.copyOf(pops, Math.max(2 * pops.length, 1));
+        pops[words.size()] = popularity;
+        words.add(word);
+        return pops;
+    }
+
+    /**
+     * Predicts the (at most) n most popular words for every one of the given
+     * prefixes, as {@link #predict(String, int)} would. The prefixes are sorted and
+     * each distinct one is predicted once. Prefixes next to each other in that
+     * order share their first letters, so each one only follows its own letters
+     * from where it parts from the previous one instead of starting at the root.
+     * Large batches are split into runs of {@value #PREDICT_RUN} prefixes which are
+     * predicted in parallel on the common fork/join pool.
+     *
+     * The dictionary must not change while this runs.
+     *
+     * @param prefixes the prefixes of the words found, in any order and possibly repeated
+     * @param n        the maximum number of words returned per prefix
+     * @return the predictions for every distinct prefix, keyed by the prefix
+     */
+    public Map<String, List<String>> predictAll(Collection<String> prefixes, int n) {
+        String[] sorted = prefixes.toArray(new String[0]);
+        Arrays.sort(sorted);
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (distinct == 0 || !sorted[i].equals(sorted[distinct - 1]))
+                sorted[distinct++] = sorted[i];
+        }
+
+        List<List<String>> predictions = new ArrayList<>(Collections.nCopies(distinct, null));
+        int runs = (distinct + PREDICT_RUN - 1) / PREDICT_RUN;
+        int size = distinct;
+        IntStream.range(0, runs).parallel().forEach(run ->
+                predictRun(sorted, predictions, run * PREDICT_RUN, Math.min(size, (run + 1) * PREDICT_RUN), n));
+
+        Map<String, List<String>> predicted = new HashMap<>(distinct * 4 / 3 + 1);
+        for (int i = 0; i < distinct; i++) {
+            predicted.put(sorted[i], predictions.get(i));
+        }
+
+        return predicted;
+    }
+
+    /**
+     * Predicts the words of the sorted prefixes from..to, keeping the nodes of the
+     * previous prefix to start the next one from the last node they share.
+     */
+    private void predictRun(String[] prefixes, List<List<String>> predictions, int from, int to, int n) {
+        DictionaryTree[] path = new DictionaryTree[16];
+        path[0] = this;
+        // path[0..followed] are the nodes of the first letters of the previous prefix
+        int followed = 0;
+        String previous = "";
+
+        for (int i = from; i < to; i++) {
+            String prefix = prefixes[i];
+            int depth = 0;
+            while (depth < followed && depth < prefix.length() && prefix.charAt(depth) == previous.charAt(depth))
+                depth++;
+
+            if (path.length <= prefix.length())
+                path = Arrays.copyOf(path, prefix.length() + 1);
+            DictionaryTree node = path[depth];
+            while (depth < prefix.length() && (node = path[depth].child(prefix.charAt(depth))) != null)
+                path[++depth] = node;
+
+            followed = depth;
+            previous = prefix;
+            predictions.set(i, predict(prefix.length() > 0 ? node : null, prefix, n, null));
+        }
+    }
+
+    /**
+     * Predicts the (at most) n most popular words which start with a prefix within
+     * the given edit distance (insertions, deletions and substitutions of letters)
+     * of the given one, so a mistyped letter still finds completions. Words closer
+     * to the prefix come first, then more popular ones, then alphabetically.
+     *
+     * The tree is walked depth first with one row of the edit distance table per
+     * letter, leaving every branch whose row has no distance within maxDistance.
+     * The completions of the matching nodes are then merged one distance at a
+     * time, most popular first, skipping nodes whose best popularity can not
+     * make the cut.
+     *
+     * @param prefix      the prefix typed
+     * @param n           the maximum number of words returned
+     * @param maxDistance the largest edit distance allowed from the prefix
+     * @return the (at most) n best words starting with a prefix close to the given one
+     */
+    public List<String> predictFuzzy(String prefix, int n, int maxDistance) {
+        if (maxDistance < 0)
+            throw new IllegalArgumentException("maxDistance must not be negative: " + maxDistance);
+        // The empty prefix has no completions, see predict
+        if (prefix.length() == 0)
+            return predict(prefix, n);
+
+        // The rows of the branch being walked. A row with depth letters has no
+        // distance below depth - prefix.length(), so deeper ones are never needed.
+        int[][] rows = new int[prefix.length() + maxDistance + 2][prefix.length() + 1];
+        for (int j = 0; j <= prefix.length(); j++) {
+            rows[0][j] = j;
+        }
+        List<FuzzyMatch> matches = new ArrayList<>();
+        fuzzyMatches(this, prefix, rows, new char[rows.length], 0, maxDistance + 1, matches);
+        matches.sort((first, second) -> Integer.compare(second.node.maxPop, first.node.maxPop));
+
+        // Every word closer than the current distance is already out, as the
+        // distance only grows once all of them are
+        List<String> predicted = new ArrayList<>();
+        Set<String> found = new HashSet<>();
+        for (int distance = 0; distance <= maxDistance && predicted.size() < n; distance++) {
+            int wanted = n - predicted.size();
+            String[] words = new String[wanted];
+            int[] pops = new int[wanted];
+            int size = 0;
+
+            for (FuzzyMatch match : matches) {
+                if (match.distance != distance)
+                    continue;
+                // The matches are sorted, so no later one has a popular enough word either
+                if (size == wanted && match.node.maxPop < pops[size - 1])
+                    break;
+
+                // At most predicted.size() of the n best words of a match were found before
+                List<String> matchWords = new ArrayList<>();
+                List<Integer> matchPops = new ArrayList<>();
+                if (n <= cacheSize()) {
+                    for (int i = 0; i < match.node.topWords.length; i++) {
+                        matchWords.add(match.node.topWords[i]);
+                        matchPops.add(match.node.topPops[i]);
+                    }
+                } else {
+                    for (Candidate candidate : mostPopular(match.node, n, true, null)) {
+                        matchWords.add(candidate.word(match.prefix));
+                        matchPops.add(candidate.popularity);
+                    }
+                }
+
+                for (int i = 0; i < matchWords.size(); i++) {
+                    if (size == wanted && !isBefore(matchWords.get(i), matchPops.get(i), words[size - 1], pops[size - 1]))
+                        break;
+                    if (!found.contains(matchWords.get(i)))
+                        size = offer(words, pops, size, matchWords.get(i), matchPops.get(i));
+                }
+            }
+
+            for (int i = 0; i < size; i++) {
+                predicted.add(words[i]);
+                found.add(words[i]);
+            }
+        }
+
+        return predicted;
+    }
+
+    /**
+     * Finds the nodes of the given subtree within the edit distance of the prefix,
+     * keeping only those closer than every node above them.
+     *
+     * @param node     the root of the subtree
+     * @param prefix   the prefix typed
+     * @param rows     the edit distances of the prefixes of the prefix from the branch
+     *                 letters, rows[depth] filled in for this node
+     * @param branch   the letters leading to this node
+     * @param depth    the depth of this node
+     * @param distance the distance of the closest node above this one, or
+     *                 maxDistance + 1 if there is none
+     * @param matches  the list the matching nodes are added to
+     */
+    private static void fuzzyMatches(DictionaryTree node, String prefix, int[][] rows, char[] branch, int depth,
+                                     int distance, List<FuzzyMatch> matches) {
+        int[] row = rows[depth];
+        if (row[prefix.length()] < distance) {
+            distance = row[prefix.length()];
+            matches.add(new FuzzyMatch(node, new String(branch, 0, depth), distance));
+        }
+
+        // No row below this one has a distance smaller than the smallest one here
+        int closest = row[0];
+        for (int value : row) {
+            closest = Math.min(closest, value);
+        }
+        if (closest >= distance)
+            return;
+
+        int[] next = rows[depth + 1];
+        for (int i = 0; i < node.keys.length; i++) {
+            if (node.children[i].maxPop == NO_WORD)
+                continue;
+
+            char letter = node.keys[i];
+            next[0] = row[0] + 1;
+            for (int j = 1; j < row.length; j++) {
+                int substitution = row[j - 1] + (prefix.charAt(j - 1) == letter ? 0 : 1);
+                next[j] = Math.min(substitution, Math.min(row[j], next[j - 1]) + 1);
+            }
+
+            branch[depth] = letter;
+            fuzzyMatches(node.children[i], prefix, rows, branch, depth + 1, distance, matches);
+        }
+    }
+
+    /**
+     * A node found by {@link #fuzzyMatches}, its words all within distance of the prefix.
+     */
+    private static final class FuzzyMatch {
+
+        private final DictionaryTree node;
+        private final String prefix;
+        private final int distance;
+
+        FuzzyMatch(DictionaryTree node, String prefix, int distance) {
+            this.node = node;
+            this.prefix = prefix;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Starts a cursor for predicting words as they are typed letter by letter.
+     * The dictionary must not change while the cursor is used.
+     *
+     * @return a cursor at the empty prefix
+     */
+    public Cursor cursor() {
+        return new Cursor(this);
+    }
+
+    /**
+     * The prefix typed so far into a dictionary, one letter at a time. The cursor
+     * keeps the nodes of the typed letters on a stack, so typing a letter takes
+     * one step down the tree and a backspace one step up, and predict() starts at
+     * the node reached instead of following the prefix from the root.
+     */
+    public static final class Cursor {
+
+        private final DictionaryTree root;
+        private final StringBuilder prefix = new StringBuilder();
+        // nodes[i] is the node of the first i letters, for i up to the number of
+        // letters which are still in the tree
+        private DictionaryTree[] nodes = new DictionaryTree[16];
+        private int depth = 0;
+
+        private Cursor(DictionaryTree root) {
+            this.root = root;
+            nodes[0] = root;
+        }
+
+        /**
+         * Adds the given letter to the end of the prefix.
+         *
+         * @param letter the letter typed
+         */
+        public void type(char letter) {
+            // Once a letter left the tree, no longer prefix can get back into it
+            if (depth == prefix.length()) {
+                DictionaryTree next = nodes[depth].child(letter);
+                if (next != null) {
+                    if (depth + 1 == nodes.length)
+                        nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                    nodes[++depth] = next;
+                }
+            }
+            prefix.append(letter);
+        }
+
+        /**
+         * Adds the letters of the given text to the end of the prefix.
+         *
+         * @param text the letters typed
+         */
+        public void type(CharSequence text) {
+            for (int i = 0; i < text.length(); i++) {
+                type(text.charAt(i));
+            }
+        }
+
+        /**
+         * Removes the last letter of the prefix, if there is one.
+         */
+        public void backspace() {
+            if (prefix.length() == 0)
+                return;
+
+            if (depth == prefix.length())
+                nodes[depth--] = null;
+            prefix.setLength(prefix.length() - 1);
+        }
+
+        /**
+         * Goes back to the empty prefix.
+         */
+        public void clear() {
+            Arrays.fill(nodes, 1, depth + 1, null);
+            depth = 0;
+            prefix.setLength(0);
+        }
+
+        /**
+         * @return the letters typed so far
+         */
+        public String prefix() {
+            return prefix.toString();
+        }
+
+        /**
+         * @return true if the letters typed so far are a word of the dictionary
+         */
+        public boolean isWord() {
+            return depth == prefix.length() && nodes[depth].pop != NO_WORD;
+        }
+
+        /**
+         * Predicts the (at most) n most popular words starting with the letters typed
+         * so far, as {@link DictionaryTree#predict(String, int)} would.
+         *
+         * @param n the maximum number of words returned
+         * @return the (at most) n most popular words with the typed prefix
+         */
+        public List<String> predict(int n) {
+            DictionaryTree tree = depth == prefix.length() && depth > 0 ? nodes[depth] : null;
+            return root.predict(tree, prefix.toString(), n, null);
+        }
     }
 
     /**
@@ -358,18 +1236,18 @@ public class DictionaryTree {
      * not prefixes of any other word.swich
      */
     public int numLeaves() {
-        return fold((tree, result) -> {
+        return parallelFoldInt((tree, result) -> {
             int numberOfLeaves = 0;
 
             for (int i : result) {
                 numberOfLeaves += i;
             }
 
-            if (tree.children.isEmpty()) {
+            if (tree.keys.length == 0) {
                 numberOfLeaves += 1;
             }
             return numberOfLeaves;
-        });
+        }, ForkJoinPool.commonPool());
 
     }
 
@@ -377,22 +1255,22 @@ public class DictionaryTree {
      * @return the maximum number of children held by any node in this tree
      */
     public int maximumBranching() {
-        return fold((tree, result) -> {
-            int maximum = Integer.MIN_VALUE;
+        return parallelFoldInt((tree, result) -> {
+            int maximum = tree.keys.length;
 
             for (int i : result) {
-                maximum = Math.max(tree.children.size(), i);
+                maximum = Math.max(maximum, i);
             }
 
             return maximum;
-        });
+        }, ForkJoinPool.commonPool());
     }
 
     /**
      * @return the height of this tree, i.e. the length of the longest branch
      */
     public int height() {
-        return fold((tree, result) -> {
+        return parallelFoldInt((tree, result) -> {
             int height = -1;
 
             for (int i : result) {
@@ -400,22 +1278,15 @@ public class DictionaryTree {
             }
 
             return height + 1;
-        });
+        }, ForkJoinPool.commonPool());
     }
 
     /**
      * @return the number of nodes in this tree
      */
     public int size() {
-        return fold((tree, result) -> {
-            int size = 0;
-
-            for (int i : result) {
-                size += i;
-            }
-
-            return size + 1;
-        });
+        // Every change keeps the sizes of the nodes on its path up to date
+        return nodes;
     }
 
     /**
@@ -426,15 +1297,15 @@ public class DictionaryTree {
         String keyOfLongest = "";
         String word;
 
-        if (!children.isEmpty()) {
+        if (keys.length > 0) {
             // Goes through every node
-            for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                word = child.getValue().longestWord();
+            for (int i = 0; i < keys.length; i++) {
+                word = children[i].longestWord();
                 // Compares the returned longest word with the one it has and switches
                 // accordingly
                 if (word.length() >= longestWord.length()) {
                     longestWord = word;
-                    keyOfLongest = Character.toString(child.getKey());
+                    keyOfLongest = Character.toString(keys[i]);
                 }
             }
             // Adds the key of the node to the longest word
@@ -444,29 +1315,247 @@ public class DictionaryTree {
     }
 
     /**
-     * @return all words stored in this tree as a list
+     * @return all words stored in this tree as a list, in alphabetical order
      */
     public List<String> allWords() {
-        List<String> listOfWords = new LinkedList<>();
-        List<String> listOfReturnedWords;
+        return words().collect(Collectors.toCollection(ArrayList::new));
+    }
 
-        if (!children.isEmpty()) {
-            // Goes through every node
-            for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-                listOfReturnedWords = child.getValue().allWords();
+    /**
+     * Streams the words stored in this tree in alphabetical order. The words are
+     * found one at a time as the stream is consumed, so it takes memory in
+     * proportion to the length of the longest word rather than the number of
+     * words, and stops walking the tree once no more words are wanted, e.g. after
+     * limit() or findFirst(). A parallel stream splits the tree between threads.
+     *
+     * The tree must not change while the stream is used; streams of a
+     * {@link ConcurrentDictionaryTree} see the version they were created from.
+     *
+     * @return the words of this tree
+     */
+    public Stream<String> words() {
+        return wordsInRange("", null);
+    }
 
-                // Checks if any of the children ends a word. If so adds them to the list
-                if (child.getValue().pop.isPresent())
-                    listOfWords.add(Character.toString(child.getKey()));
+    /**
+     * Streams the words starting with the given prefix in alphabetical order, the
+     * prefix itself first if it is a word, see {@link #words()}.
+     *
+     * @param prefix the prefix of the words streamed
+     * @return the words with the given prefix
+     */
+    public Stream<String> wordsWithPrefix(String prefix) {
+        DictionaryTree node = followPrefix(prefix);
+        if (node == null)
+            return Stream.empty();
+
+        return StreamSupport.stream(new WordSpliterator(node, prefix, null), false);
+    }
+
+    /**
+     * Streams the words from the given word up to but excluding the other given
+     * word in alphabetical order, see {@link #words()}. Words before from are
+     * skipped without visiting them.
+     *
+     * @param from the first word streamed if it is in this tree
+     * @param to   the word the stream ends before, or null to stream up to the last word
+     * @return the words w with from &lt;= w &lt; to
+     */
+    public Stream<String> wordsInRange(String from, String to) {
+        return StreamSupport.stream(new WordSpliterator(this, "", to).skipTo(from), false);
+    }
+
+    /**
+     * Compiles this tree into an immutable {@link FrozenDictionary} holding the
+     * same words and popularities in flat arrays. Later changes to this tree do
+     * not affect the returned dictionary.
+     *
+     * @return the compiled dictionary
+     */
+    public FrozenDictionary freeze() {
+        int size = size();
+        char[] labels = new char[size];
+        int[] parents = new int[size];
+        int[] pops = new int[size];
+        int[] maxPops = new int[size];
+        int[] edgeStarts = new int[size + 1];
+        char[] edgeLabels = new char[size - 1];
+        int[] edgeTargets = new int[size - 1];
+
+        // Numbers the nodes in preorder with an explicit stack. A node learns its
+        // number when it is popped and writes it into the edge its parent reserved.
+        DictionaryTree[] stack = new DictionaryTree[size];
+        int[] stackEdges = new int[size];
+        int stackSize = 0;
+        int edges = 0;
+
+        stack[stackSize] = this;
+        stackEdges[stackSize++] = -1;
+        for (int id = 0; id < size; id++) {
+            DictionaryTree node = stack[--stackSize];
+            int edge = stackEdges[stackSize];
+
+            if (edge >= 0) {
+                labels[id] = edgeLabels[edge];
+                edgeTargets[edge] = id;
+            }
+            pops[id] = node.pop;
+            maxPops[id] = node.pop;
+
+            edgeStarts[id] = edges;
+            for (int i = node.keys.length - 1; i >= 0; i--) {
+                edgeLabels[edges + i] = node.keys[i];
+                stack[stackSize] = node.children[i];
+                stackEdges[stackSize++] = edges + i;
+            }
+            edges += node.keys.length;
+        }
+        edgeStarts[size] = edges;
+
+        for (int id = 0; id < size; id++) {
+            for (int e = edgeStarts[id]; e < edgeStarts[id + 1]; e++) {
+                parents[edgeTargets[e]] = id;
+            }
+        }
+
+        // Children are numbered after their parents, so going backwards every
+        // subtree is complete before it is merged into its parent
+        for (int id = size - 1; id > 0; id--) {
+            maxPops[parents[id]] = Math.max(maxPops[parents[id]], maxPops[id]);
+        }
+
+        return new FrozenDictionary(labels, parents, pops, maxPops, edgeStarts, edgeLabels, edgeTargets);
+    }
+
+    /**
+     * Rebuilds the completion caches of all nodes of this subtree, children first.
+     *
+     * @param word      the word ended by this node, extended and restored while the
+     *                  children are visited
+     * @param cacheSize the maximum number of completions cached
+     */
+    private void refreshCaches(StringBuilder word, int cacheSize) {
+        for (int i = 0; i < keys.length; i++) {
+            word.append(keys[i]);
+            children[i].refreshCaches(word, cacheSize);
+            word.setLength(word.length() - 1);
+        }
 
-                // Adds the key of the node to every word in the returned list of words
-                for (String listOfReturnedWord : listOfReturnedWords) {
-                    listOfWords.add(child.getKey() + listOfReturnedWord);
+        refreshCache(this, pop != NO_WORD ? word.toString() : "", word.length(), cacheSize);
+    }
+
+    /**
+     * Builds the subtree of the words sharing their first depth letters. Large
+     * groups of words are split by their next letter into subtasks, small ones are
+     * inserted one by one.
+     */
+    private static class BuildTask extends RecursiveTask<DictionaryTree> {
+
+        private static final long serialVersionUID = 1L;
+
+        // Groups smaller than this are built without forking
+        private static final int SPLIT_THRESHOLD = 4096;
+
+        private final List<String> words;
+        private final IntUnaryOperator popularities;
+        private final int cacheSize;
+        // indexes[from..to) are the indexes of the words of this subtree in input
+        // order; buffer[from..to) is free for partitioning them
+        private final int[] indexes;
+        private final int[] buffer;
+        private final int from;
+        private final int to;
+        private final int depth;
+
+        BuildTask(List<String> words, IntUnaryOperator popularities, int cacheSize,
+                  int[] indexes, int[] buffer, int from, int to, int depth) {
+            this.words = words;
+            this.popularities = popularities;
+            this.cacheSize = cacheSize;
+            this.indexes = indexes;
+            this.buffer = buffer;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected DictionaryTree compute() {
+            DictionaryTree node = depth == 0 ? new DictionaryTree(cacheSize) : new DictionaryTree(NO_POPS);
+
+            if (to - from < SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    String word = words.get(indexes[i]);
+                    // insert("") does not add the empty word, so neither does this
+                    if (word.length() > 0)
+                        node.insertFrom(word, depth, popularities.applyAsInt(indexes[i]));
                 }
+                node.refreshCaches(new StringBuilder(prefix()), cacheSize);
+                return node;
+            }
+
+            // Words ending here are overwritten in input order, so the last one wins
+            char[] letters = new char[to - from];
+            int longer = 0;
+            for (int i = from; i < to; i++) {
+                String word = words.get(indexes[i]);
+                if (word.length() > depth)
+                    letters[longer++] = word.charAt(depth);
+                else if (depth > 0)
+                    node.pop = popularities.applyAsInt(indexes[i]);
+            }
+
+            // The distinct next letters in order become the keys of this node
+            Arrays.sort(letters, 0, longer);
+            int distinct = 0;
+            for (int i = 0; i < longer; i++) {
+                if (distinct == 0 || letters[i] != letters[distinct - 1])
+                    letters[distinct++] = letters[i];
+            }
+            node.keys = Arrays.copyOf(letters, distinct);
+            node.children = new DictionaryTree[distinct];
+
+            // Groups the words by their next letter, keeping the input order within
+            // each group (a stable counting sort through the buffer)
+            int[] starts = new int[distinct + 1];
+            for (int i = from; i < to; i++) {
+                String word = words.get(indexes[i]);
+                if (word.length() > depth)
+                    starts[Arrays.binarySearch(node.keys, word.charAt(depth)) + 1]++;
+            }
+            starts[0] = from;
+            for (int letter = 1; letter <= distinct; letter++) {
+                starts[letter] += starts[letter - 1];
+            }
+
+            BuildTask[] tasks = new BuildTask[distinct];
+            for (int letter = 0; letter < distinct; letter++) {
+                tasks[letter] = new BuildTask(words, popularities, cacheSize, indexes, buffer,
+                        starts[letter], starts[letter + 1], depth + 1);
             }
+
+            for (int i = from; i < to; i++) {
+                String word = words.get(indexes[i]);
+                if (word.length() > depth)
+                    buffer[starts[Arrays.binarySearch(node.keys, word.charAt(depth))]++] = indexes[i];
+            }
+            System.arraycopy(buffer, from, indexes, from, starts[distinct] - from);
+
+            invokeAll(tasks);
+            for (int letter = 0; letter < distinct; letter++) {
+                node.children[letter] = tasks[letter].join();
+            }
+            refreshCache(node, prefix(), depth, cacheSize);
+
+            return node;
         }
 
-        return listOfWords;
+        /**
+         * @return the letters shared by the words of this subtree
+         */
+        private String prefix() {
+            return from < to ? words.get(indexes[from]).substring(0, depth) : "";
+        }
     }
 
     /**
@@ -483,11 +1572,318 @@ public class DictionaryTree {
     <A> A fold(BiFunction<DictionaryTree, Collection<A>, A> f) {
         List<A> accumulatedResult = new ArrayList<>();
 
-        for (Map.Entry<Character, DictionaryTree> child : children.entrySet()) {
-            A result = child.getValue().fold(f);
+        for (DictionaryTree child : children) {
+            A result = child.fold(f);
             accumulatedResult.add(result);
         }
 
         return f.apply(this, accumulatedResult);
     }
+
+    /**
+     * Folds the tree like {@link #fold(BiFunction)}, but the subtrees of at least
+     * {@value #FOLD_SPLIT_THRESHOLD} nodes are folded as fork/join tasks of the
+     * given pool. The function is called from several threads at once.
+     *
+     * @param f    the summarising function
+     * @param pool the pool running the tasks
+     * @param <A>  the type of the folded value
+     * @return the result of folding the tree using f
+     */
+    <A> A parallelFold(BiFunction<DictionaryTree, Collection<A>, A> f, ForkJoinPool pool) {
+        return pool.invoke(new FoldTask<>(this, f));
+    }
+
+    /**
+     * A function summarising a node from the int results of its children.
+     */
+    @FunctionalInterface
+    interface IntFolder {
+
+        /**
+         * @param tree    the node summarised
+         * @param results the results of the children of the node, in the order of
+         *                their letters
+         * @return the result of the node
+         */
+        int apply(DictionaryTree tree, int[] results);
+    }
+
+    /**
+     * Folds the tree like {@link #fold(BiFunction)} into an int, without boxing
+     * the results of the children.
+     *
+     * @param f the summarising function
+     * @return the result of folding the tree using f
+     */
+    int foldInt(IntFolder f) {
+        int[] results = children.length == 0 ? NO_POPS : new int[children.length];
+
+        for (int i = 0; i < children.length; i++) {
+            results[i] = children[i].foldInt(f);
+        }
+
+        return f.apply(this, results);
+    }
+
+    /**
+     * Folds the tree like {@link #foldInt(IntFolder)}, but the subtrees of at
+     * least {@value #FOLD_SPLIT_THRESHOLD} nodes are folded as fork/join tasks of
+     * the given pool. The function is called from several threads at once.
+     *
+     * @param f    the summarising function
+     * @param pool the pool running the tasks
+     * @return the result of folding the tree using f
+     */
+    int parallelFoldInt(IntFolder f, ForkJoinPool pool) {
+        if (nodes < FOLD_SPLIT_THRESHOLD)
+            return foldInt(f);
+        return pool.invoke(new IntFoldTask(this, f));
+    }
+
+    /**
+     * Folds a subtree, forking a task for every child subtree large enough to be
+     * worth it and folding the others on the spot.
+     */
+    private static class FoldTask<A> extends RecursiveTask<A> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DictionaryTree tree;
+        private final BiFunction<DictionaryTree, Collection<A>, A> f;
+
+        FoldTask(DictionaryTree tree, BiFunction<DictionaryTree, Collection<A>, A> f) {
+            this.tree = tree;
+            this.f = f;
+        }
+
+        @Override
+        protected A compute() {
+            List<FoldTask<A>> tasks = new ArrayList<>();
+            for (DictionaryTree child : tree.children) {
+                if (child.nodes >= FOLD_SPLIT_THRESHOLD)
+                    tasks.add(new FoldTask<>(child, f));
+            }
+            invokeAll(tasks);
+
+            List<A> results = new ArrayList<>(tree.children.length);
+            int task = 0;
+            for (DictionaryTree child : tree.children) {
+                results.add(child.nodes >= FOLD_SPLIT_THRESHOLD ? tasks.get(task++).join() : child.fold(f));
+            }
+
+            return f.apply(tree, results);
+        }
+    }
+
+    /**
+     * The task of {@link #parallelFoldInt(IntFolder, ForkJoinPool)}, see {@link FoldTask}.
+     */
+    private static class IntFoldTask extends RecursiveTask<Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final DictionaryTree tree;
+        private final IntFolder f;
+
+        IntFoldTask(DictionaryTree tree, IntFolder f) {
+            this.tree = tree;
+            this.f = f;
+        }
+
+        @Override
+        protected Integer compute() {
+            List<IntFoldTask> tasks = new ArrayList<>();
+            for (DictionaryTree child : tree.children) {
+                if (child.nodes >= FOLD_SPLIT_THRESHOLD)
+                    tasks.add(new IntFoldTask(child, f));
+            }
+            invokeAll(tasks);
+
+            int[] results = new int[tree.children.length];
+            int task = 0;
+            for (int i = 0; i < tree.children.length; i++) {
+                results[i] = tree.children[i].nodes >= FOLD_SPLIT_THRESHOLD
+                        ? tasks.get(task++).join() : tree.children[i].foldInt(f);
+            }
+
+            return f.apply(tree, results);
+        }
+    }
+
+    /**
+     * Walks a tree in preorder, which is alphabetical order, with an explicit stack
+     * of the nodes on the current path and one buffer holding the letters of the
+     * path, so only the words found are allocated.
+     *
+     * A split hands the first half of the remaining children of the shallowest
+     * node with at least two left, along with everything below the current path,
+     * to a new spliterator, and continues with the second half.
+     */
+    private static final class WordSpliterator implements Spliterator<String> {
+
+        // The letters of the root's word, which the letters of the path follow
+        private final int base;
+        // The end of the range, null for none
+        private final String to;
+        private DictionaryTree[] nodes;
+        // The next child to visit and the end of the children to visit of every node of the path
+        private int[] next;
+        private int[] end;
+        private char[] word;
+        // The index of the last node of the path, -1 once everything was visited
+        private int depth = 0;
+        // Whether the word of the last node of the path is still to come
+        private boolean pending = true;
+
+        /**
+         * @param root     the root of the subtree walked
+         * @param rootWord the letters leading to the root
+         * @param to       the word to stop before, or null
+         */
+        WordSpliterator(DictionaryTree root, String rootWord, String to) {
+            this.base = rootWord.length();
+            this.to = to;
+            this.nodes = new DictionaryTree[16];
+            this.next = new int[16];
+            this.end = new int[16];
+            this.word = Arrays.copyOf(rootWord.toCharArray(), base + 16);
+            nodes[0] = root;
+            end[0] = root.keys.length;
+        }
+
+        private WordSpliterator(WordSpliterator other) {
+            this.base = other.base;
+            this.to = other.to;
+            this.nodes = other.nodes.clone();
+            this.next = other.next.clone();
+            this.end = other.end.clone();
+            this.word = other.word.clone();
+            this.depth = other.depth;
+            this.pending = other.pending;
+        }
+
+        /**
+         * Moves to the first word which is not before the given one, following its
+         * letters as far as the tree has them.
+         *
+         * @return this spliterator
+         */
+        WordSpliterator skipTo(String from) {
+            for (int i = 0; i < from.length(); i++) {
+                DictionaryTree node = nodes[depth];
+                int index = Arrays.binarySearch(node.keys, from.charAt(i));
+                if (index < 0) {
+                    // Every child from the insertion point on comes after from
+                    next[depth] = -index - 1;
+                    pending = false;
+                    return this;
+                }
+
+                next[depth] = index + 1;
+                push(node.keys[index], node.children[index]);
+                // Only the word from itself counts, not the shorter ones on its path
+                pending = i == from.length() - 1;
+            }
+            return this;
+        }
+
+        private void push(char letter, DictionaryTree child) {
+            if (depth + 1 == nodes.length) {
+                nodes = Arrays.copyOf(nodes, nodes.length * 2);
+                next = Arrays.copyOf(next, next.length * 2);
+                end = Arrays.copyOf(end, end.length * 2);
+                word = Arrays.copyOf(word, base + nodes.length);
+            }
+
+            word[base + depth] = letter;
+            depth++;
+            nodes[depth] = child;
+            next[depth] = 0;
+            end[depth] = child.keys.length;
+            pending = true;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            while (depth >= 0) {
+                DictionaryTree node = nodes[depth];
+                if (pending) {
+                    pending = false;
+                    if (node.pop != NO_WORD && base + depth > 0) {
+                        String found = new String(word, 0, base + depth);
+                        // Every later word comes after this one, so the range is over
+                        if (to != null && found.compareTo(to) >= 0) {
+                            depth = -1;
+                            return false;
+                        }
+                        action.accept(found);
+                        return true;
+                    }
+                }
+
+                if (next[depth] < end[depth]) {
+                    int i = next[depth]++;
+                    push(node.keys[i], node.children[i]);
+                } else {
+                    depth--;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            while (depth >= 0) {
+                for (int d = 0; d <= depth; d++) {
+                    if (end[d] - next[d] < 2)
+                        continue;
+
+                    int middle = (next[d] + end[d]) >>> 1;
+                    WordSpliterator first = new WordSpliterator(this);
+                    for (int k = 0; k < d; k++) {
+                        first.end[k] = first.next[k];
+                    }
+                    first.end[d] = middle;
+
+                    next[d] = middle;
+                    depth = d;
+                    pending = false;
+                    return first;
+                }
+
+                // A path ending in a single child can still be split further down
+                if (pending || next[depth] == end[depth])
+                    return null;
+                int i = next[depth]++;
+                push(nodes[depth].keys[i], nodes[depth].children[i]);
+                pending = nodes[depth].pop != NO_WORD;
+                if (pending)
+                    return null;
+            }
+            return null;
+        }
+
+        @Override
+        public long estimateSize() {
+            // The number of nodes left, an upper bound of the words left
+            long size = pending ? 1 : 0;
+            for (int d = 0; d <= depth; d++) {
+                for (int i = next[d]; i < end[d]; i++) {
+                    size += nodes[d].children[i].nodes;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super String> getComparator() {
+            return null;
+        }
+    }
 }
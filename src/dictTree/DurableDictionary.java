@@ -0,0 +1,658 @@
+package src.dictTree;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * A {@link ConcurrentDictionaryTree} whose changes survive a restart. Every
+ * insert, setPop, remove and addPops is appended to a write-ahead log in the given
+ * directory before it returns, and {@link #open(Path)} recovers the dictionary
+ * from the latest snapshot and the log written since.
+ * <p>
+ * The log is group committed: one thread writes whatever changes have come in
+ * while it was forcing the previous ones to disk and forces them all with one
+ * fsync, so many writing threads share each fsync instead of paying one per
+ * change. Every record is
+ * <pre>
+ * int length, int crc32 of the rest, byte operation, int popularity, UTF-8 word
+ * </pre>
+ * and recovery stops at the first record which is cut short or does not match
+ * its checksum, i.e. one whose write was interrupted by a crash.
+ * <p>
+ * Once the log has grown past compactBytes it is folded into a new snapshot in
+ * the background: writing moves on to a new log file, the version of the
+ * dictionary at that moment is written as a {@link FrozenDictionary} snapshot,
+ * and the older logs and snapshot are deleted. Generation n of the snapshot
+ * holds every change of the logs up to generation n, so recovery replays the
+ * logs after it.
+ * <p>
+ * Reads never wait for the log. A change is visible to readers as soon as it is
+ * made, which may be before it is on disk; if the log can not be written, the
+ * writer gets an UncheckedIOException and the change may not survive a restart.
+ */
+public class DurableDictionary implements Closeable {
+
+    /**
+     * The log size at which it is folded into a snapshot by default, 64 MB.
+     */
+    public static final long DEFAULT_COMPACT_BYTES = 64L << 20;
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    // length, crc32, operation, popularity
+    private static final int RECORD_HEADER_BYTES = 2 * Integer.BYTES + 1 + Integer.BYTES;
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path directory;
+    private final ConcurrentDictionaryTree dictionary;
+    private final long compactBytes;
+
+    // Held while a change is made and logged, so the log has the order of the changes
+    private final Object writeLock = new Object();
+
+    // Guards the fields below, waited on by writers and the log thread
+    private final Object logLock = new Object();
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended = 0;
+    private long durable = 0;
+    private FileChannel log;
+    private long logGeneration;
+    private long logBytes = 0;
+    private long commits = 0;
+    private IOException failure;
+    // Set once close() starts, after which no compaction is scheduled
+    private boolean closing = false;
+    private boolean closed = false;
+
+    private final Thread logWriter;
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "dictionary-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    // Only one compaction runs at a time
+    private final Object compactLock = new Object();
+
+    private DurableDictionary(Path directory, DictionaryTree tree, long generation, long compactBytes)
+            throws IOException {
+        this.directory = directory;
+        this.dictionary = new ConcurrentDictionaryTree(tree);
+        this.compactBytes = compactBytes;
+        this.logGeneration = generation;
+        this.log = openLog(generation);
+
+        logWriter = new Thread(this::writeLog, "dictionary-log");
+        logWriter.setDaemon(true);
+        logWriter.start();
+    }
+
+    /**
+     * Opens the dictionary stored in the given directory, or an empty one if the
+     * directory holds none yet. See {@link #open(Path, DictionaryTree, long)}.
+     *
+     * @param directory the directory of the snapshot and log files
+     * @return the recovered dictionary
+     * @throws IOException if the files can not be read or written
+     */
+    public static DurableDictionary open(Path directory) throws IOException {
+        return open(directory, new DictionaryTree(), DEFAULT_COMPACT_BYTES);
+    }
+
+    /**
+     * Opens the dictionary stored in the given directory: the latest snapshot with
+     * the changes of the logs written after it applied in order. If the directory
+     * holds no snapshot yet, the dictionary starts as the given tree, which is
+     * written as the first snapshot, e.g. the words of word-popularity.txt.
+     * Snapshots do not record the cache size, so a recovered dictionary takes the
+     * cache size of the given tree: reopen it with a tree of the size it was
+     * created with.
+     *
+     * @param directory    the directory of the snapshot and log files, created if needed
+     * @param initial      the words of a new dictionary, taken over rather than copied,
+     *                     and the cache size of the dictionary either way
+     * @param compactBytes the log size at which it is folded into a new snapshot
+     * @return the recovered dictionary
+     * @throws IOException if the files can not be read or written
+     */
+    public static DurableDictionary open(Path directory, DictionaryTree initial, long compactBytes)
+            throws IOException {
+        if (compactBytes < 1)
+            throw new IllegalArgumentException("compactBytes must be positive: " + compactBytes);
+        Files.createDirectories(directory);
+
+        List<Long> snapshots = generations(directory, SNAPSHOT_SUFFIX);
+        long snapshot;
+        DictionaryTree tree;
+        if (snapshots.isEmpty()) {
+            snapshot = 0;
+            tree = initial;
+            writeSnapshot(directory, tree.freeze(), snapshot);
+        } else {
+            snapshot = snapshots.get(snapshots.size() - 1);
+            tree = FrozenDictionary.map(snapshotFile(directory, snapshot)).thaw(initial.cacheSize());
+        }
+
+        long last = snapshot;
+        for (long generation : generations(directory, LOG_SUFFIX)) {
+            if (generation > snapshot)
+                replay(logFile(directory, generation), tree);
+            last = Math.max(last, generation);
+        }
+
+        // A log cut short by a crash is never appended to, writing goes on in a new one
+        return new DurableDictionary(directory, tree, last + 1, compactBytes);
+    }
+
+    /**
+     * Inserts the given word with a popularity of -1 if it is not in the dictionary
+     * yet, see {@link ConcurrentDictionaryTree#insert(String)}, and returns once
+     * the change is on disk.
+     *
+     * @param word the word to insert
+     */
+    public void insert(String word) {
+        long record;
+        synchronized (writeLock) {
+            checkOpen();
+            if (dictionary.containsWord(word))
+                return;
+            dictionary.insert(word);
+            record = append(PUT, -1, word);
+        }
+        awaitDurable(record);
+    }
+
+    /**
+     * Inserts the given word with the given popularity, overwriting the popularity
+     * if the word exists, and returns once the change is on disk.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        long record;
+        synchronized (writeLock) {
+            checkOpen();
+            dictionary.insert(word, popularity);
+            record = append(PUT, popularity, word);
+        }
+        awaitDurable(record);
+    }
+
+    /**
+     * Changes the popularity of the given word if it is in the dictionary, and
+     * returns once the change is on disk.
+     *
+     * @param word       the word whose popularity is changed
+     * @param popularity the new popularity
+     * @return true if the word was found; false otherwise
+     */
+    public boolean setPop(String word, int popularity) {
+        long record;
+        synchronized (writeLock) {
+            checkOpen();
+            if (!dictionary.setPop(word, popularity))
+                return false;
+            record = append(PUT, popularity, word);
+        }
+        awaitDurable(record);
+        return true;
+    }
+
+    /**
+     * Removes the given word from the dictionary, and returns once the change is
+     * on disk.
+     *
+     * @param word the word to remove
+     * @return true if the word was in the dictionary; false otherwise
+     */
+    public boolean remove(String word) {
+        long record;
+        synchronized (writeLock) {
+            checkOpen();
+            if (!dictionary.remove(word))
+                return false;
+            record = append(REMOVE, 0, word);
+        }
+        awaitDurable(record);
+        return true;
+    }
+
+    /**
+     * Adds the given amounts to the popularities of the given words in one change,
+     * see {@link ConcurrentDictionaryTree#addPops(Map)}, and returns once the
+     * change is on disk. The new popularities are logged together, so a single
+     * writer can apply many changes per fsync by batching them, e.g. selections
+     * counted by a {@link PopularityUpdater}.
+     *
+     * @param amounts the amount added to the popularity of each word
+     */
+    public void addPops(Map<String, Integer> amounts) {
+        long record;
+        synchronized (writeLock) {
+            checkOpen();
+            dictionary.addPops(amounts);
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (String word : amounts.keySet()) {
+                byte[] bytes = record(PUT, dictionary.getPop(word), word);
+                records.write(bytes, 0, bytes.length);
+            }
+            record = append(records.toByteArray(), records.size(), amounts.size());
+        }
+        awaitDurable(record);
+    }
+
+    /**
+     * @see ConcurrentDictionaryTree#contains(CharSequence)
+     */
+    public boolean contains(CharSequence word) {
+        return dictionary.contains(word);
+    }
+
+    /**
+     * @see ConcurrentDictionaryTree#getPop(CharSequence)
+     */
+    public int getPop(CharSequence word) {
+        return dictionary.getPop(word);
+    }
+
+    /**
+     * @see ConcurrentDictionaryTree#predict(String, int)
+     */
+    public List<String> predict(String prefix, int n) {
+        return dictionary.predict(prefix, n);
+    }
+
+    /**
+     * @see ConcurrentDictionaryTree#allWords()
+     */
+    public List<String> allWords() {
+        return dictionary.allWords();
+    }
+
+    /**
+     * @see ConcurrentDictionaryTree#size()
+     */
+    public int size() {
+        return dictionary.size();
+    }
+
+    /**
+     * @return the number of times the log has been forced to disk, at most one per
+     * change and usually far fewer when several threads write
+     */
+    public long commits() {
+        synchronized (logLock) {
+            return commits;
+        }
+    }
+
+    /**
+     * @return the number of changes logged since the dictionary was opened
+     */
+    public long records() {
+        synchronized (logLock) {
+            return appended;
+        }
+    }
+
+    /**
+     * Folds the log into a new snapshot now rather than when it has grown past
+     * compactBytes. Changes can go on meanwhile; they are only held up until the
+     * log written so far is on disk.
+     *
+     * @throws IOException if the snapshot or the new log can not be written
+     */
+    public void compact() throws IOException {
+        synchronized (compactLock) {
+            DictionaryTree version;
+            long generation;
+            FileChannel oldLog;
+
+            synchronized (writeLock) {
+                synchronized (logLock) {
+                    // Every change so far goes to the old log before writing moves on
+                    while (durable < appended && failure == null)
+                        waitForLog();
+                    checkOpen();
+                    generation = logGeneration;
+                    oldLog = log;
+                    log = openLog(generation + 1);
+                    logGeneration = generation + 1;
+                    logBytes = 0;
+                }
+                version = dictionary.version();
+            }
+            oldLog.close();
+
+            writeSnapshot(directory, version.freeze(), generation);
+            for (long older : generations(directory, LOG_SUFFIX)) {
+                if (older <= generation)
+                    Files.deleteIfExists(logFile(directory, older));
+            }
+            for (long older : generations(directory, SNAPSHOT_SUFFIX)) {
+                if (older < generation)
+                    Files.deleteIfExists(snapshotFile(directory, older));
+            }
+        }
+    }
+
+    /**
+     * Waits for the changes made so far to be on disk, stops the log and
+     * compaction threads and closes the log. The snapshot is not rewritten, the
+     * next open replays the log.
+     *
+     * @throws IOException if the log can not be written or closed
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (logLock) {
+            closing = true;
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+            // No change is made after this, so none is left out of the log
+            synchronized (writeLock) {
+                synchronized (logLock) {
+                    closed = true;
+                    logLock.notifyAll();
+                }
+            }
+            logWriter.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while closing the log");
+        }
+
+        synchronized (logLock) {
+            log.close();
+            if (failure != null)
+                throw failure;
+        }
+    }
+
+    /**
+     * Adds a record to the changes waiting for the log thread. Called while
+     * holding writeLock, so records are in the order of the changes.
+     *
+     * @return the number of the record, which is durable once durable reaches it
+     */
+    private long append(byte operation, int popularity, String word) {
+        byte[] record = record(operation, popularity, word);
+        return append(record, record.length, 1);
+    }
+
+    /**
+     * Adds the given number of records from the start of the given bytes to the
+     * changes waiting for the log thread, all at once, so they go into the same
+     * commit.
+     *
+     * @return the number of the last record
+     */
+    private long append(byte[] records, int length, int count) {
+        synchronized (logLock) {
+            pending.write(records, 0, length);
+            logLock.notifyAll();
+            appended += count;
+            return appended;
+        }
+    }
+
+    /**
+     * @return the bytes of a log record, its checksum included
+     */
+    private static byte[] record(byte operation, int popularity, String word) {
+        byte[] letters = word.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + letters.length);
+        record.putInt(record.capacity() - 2 * Integer.BYTES).putInt(0)
+                .put(operation).putInt(popularity).put(letters);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), 2 * Integer.BYTES, record.capacity() - 2 * Integer.BYTES);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+        return record.array();
+    }
+
+    /**
+     * Waits until the given record has been forced to disk.
+     */
+    private void awaitDurable(long record) {
+        synchronized (logLock) {
+            while (durable < record && failure == null)
+                waitForLog();
+            if (durable < record)
+                throw new UncheckedIOException("Could not write the log", failure);
+        }
+    }
+
+    /**
+     * Waits on logLock, which the caller holds.
+     */
+    private void waitForLog() {
+        try {
+            logLock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted while waiting for the log"));
+        }
+    }
+
+    /**
+     * Makes sure changes can still be logged before one is made.
+     */
+    private void checkOpen() {
+        synchronized (logLock) {
+            if (closed)
+                throw new IllegalStateException("The dictionary is closed");
+            if (failure != null)
+                throw new UncheckedIOException("Could not write the log", failure);
+        }
+    }
+
+    /**
+     * Run by the log thread: takes all pending records, writes and forces them at
+     * once and wakes the writers waiting for them, until closed.
+     */
+    private void writeLog() {
+        while (true) {
+            byte[] batch;
+            long batchEnd;
+            FileChannel channel;
+            synchronized (logLock) {
+                while (pending.size() == 0 && !closed) {
+                    try {
+                        logLock.wait();
+                    } catch (InterruptedException e) {
+                        // Nothing is written from now on, so the writers waiting must not wait forever
+                        failure = new InterruptedIOException("The log thread was interrupted");
+                        logLock.notifyAll();
+                        return;
+                    }
+                }
+                if (pending.size() == 0)
+                    return;
+
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream(batch.length);
+                batchEnd = appended;
+                channel = log;
+            }
+
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (logLock) {
+                    failure = e;
+                    logLock.notifyAll();
+                }
+                return;
+            }
+
+            boolean compact;
+            synchronized (logLock) {
+                durable = batchEnd;
+                commits++;
+                logBytes += batch.length;
+                compact = logBytes >= compactBytes && !closing;
+                logLock.notifyAll();
+            }
+            if (compact && compactionScheduled.compareAndSet(false, true)) {
+                try {
+                    compactor.execute(this::compactInBackground);
+                } catch (RejectedExecutionException e) {
+                    // Closing, the log keeps every change until the next open
+                    compactionScheduled.set(false);
+                }
+            }
+        }
+    }
+
+    private void compactInBackground() {
+        compactionScheduled.set(false);
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            // The log keeps every change, so compaction is tried again when it grows
+            System.err.println("Could not compact the dictionary log: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Creates the log of the given generation and forces its directory entry to
+     * disk, so records forced to the log can not be lost with the entry.
+     */
+    private FileChannel openLog(long generation) throws IOException {
+        FileChannel channel = FileChannel.open(logFile(directory, generation), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        try {
+            forceDirectory(directory);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    /**
+     * Forces the entries of the given directory to disk: files created, renamed
+     * or deleted in it only survive a crash once their directory is forced.
+     */
+    private static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Applies the changes of the given log to the tree, up to the first record
+     * which is cut short or damaged.
+     *
+     * @return the number of changes applied
+     */
+    private static int replay(Path file, DictionaryTree tree) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        CRC32 crc = new CRC32();
+        int records = 0;
+
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < RECORD_HEADER_BYTES - 2 * Integer.BYTES || length > buffer.remaining())
+                break;
+
+            crc.reset();
+            crc.update(buffer.array(), buffer.position(), length);
+            if ((int) crc.getValue() != checksum)
+                break;
+
+            byte operation = buffer.get();
+            int popularity = buffer.getInt();
+            int letters = length - 1 - Integer.BYTES;
+            String word = new String(buffer.array(), buffer.position(), letters, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + letters);
+
+            if (operation == PUT)
+                tree.insert(word, popularity);
+            else if (operation == REMOVE)
+                tree.remove(word);
+            else
+                break;
+            records++;
+        }
+
+        return records;
+    }
+
+    /**
+     * Writes the snapshot of the given generation to a temporary file, forces it
+     * to disk and only then renames it, so a snapshot file is always complete. The
+     * rename is forced too before returning, as the logs it replaces are deleted
+     * next.
+     */
+    private static void writeSnapshot(Path directory, FrozenDictionary frozen, long generation) throws IOException {
+        Path temporary = directory.resolve(generation + SNAPSHOT_SUFFIX + ".tmp");
+        frozen.write(temporary);
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, snapshotFile(directory, generation), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(directory);
+    }
+
+    /**
+     * @return the generations of the files with the given suffix in the directory,
+     * in ascending order
+     */
+    private static List<Long> generations(Path directory, String suffix) throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generations.add(Long.parseLong(name.substring(0, name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // Not one of the dictionary's files
+                }
+            }
+        }
+        Collections.sort(generations);
+        return generations;
+    }
+
+    private static Path snapshotFile(Path directory, long generation) {
+        return directory.resolve(generation + SNAPSHOT_SUFFIX);
+    }
+
+    private static Path logFile(Path directory, long generation) {
+        return directory.resolve(generation + LOG_SUFFIX);
+    }
+}
@@ -0,0 +1,400 @@
+package src.dictTree;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * An immutable dictionary compiled from a {@link DictionaryTree} by
+ * {@link DictionaryTree#freeze()}. The nodes are numbered in depth first
+ * (pre)order, which is also the alphabetical order of the words they end, and
+ * stored in flat arrays instead of one object per node. It answers contains,
+ * predict and allWords exactly like the tree it was compiled from.
+ * <p>
+ * The arrays can be written to a binary snapshot file with {@link #write(Path)}
+ * and served straight from a memory mapping of that file with {@link #map(Path)},
+ * without rebuilding anything. The snapshot is laid out as:
+ * <pre>
+ * int magic ("DICT"), int version, int nodes, int edges
+ * int[nodes] pops, int[nodes] maxPops, int[nodes] parents,
+ * int[nodes + 1] edgeStarts, int[edges] edgeTargets,
+ * char[nodes] labels, char[edges] edgeLabels
+ * </pre>
+ * in big endian order.
+ */
+public class FrozenDictionary {
+
+    // The popularity of a node which does not end a word
+    static final int NO_WORD = Integer.MIN_VALUE;
+
+    private static final int MAGIC = 0x44494354;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    // Per node: the letter leading to it, its parent, the popularity of the word it
+    // ends and the highest popularity in its subtree (NO_WORD if there is none)
+    private final CharBuffer labels;
+    private final IntBuffer parents;
+    private final IntBuffer pops;
+    private final IntBuffer maxPops;
+
+    // The edges of node i are edgeStarts[i] until edgeStarts[i + 1], ordered by letter
+    private final IntBuffer edgeStarts;
+    private final CharBuffer edgeLabels;
+    private final IntBuffer edgeTargets;
+
+    FrozenDictionary(char[] labels, int[] parents, int[] pops, int[] maxPops,
+                     int[] edgeStarts, char[] edgeLabels, int[] edgeTargets) {
+        this(CharBuffer.wrap(labels), IntBuffer.wrap(parents), IntBuffer.wrap(pops), IntBuffer.wrap(maxPops),
+                IntBuffer.wrap(edgeStarts), CharBuffer.wrap(edgeLabels), IntBuffer.wrap(edgeTargets));
+    }
+
+    private FrozenDictionary(CharBuffer labels, IntBuffer parents, IntBuffer pops, IntBuffer maxPops,
+                             IntBuffer edgeStarts, CharBuffer edgeLabels, IntBuffer edgeTargets) {
+        this.labels = labels;
+        this.parents = parents;
+        this.pops = pops;
+        this.maxPops = maxPops;
+        this.edgeStarts = edgeStarts;
+        this.edgeLabels = edgeLabels;
+        this.edgeTargets = edgeTargets;
+    }
+
+    /**
+     * Opens a snapshot written by {@link #write(Path)}. The file is mapped into
+     * memory read only and queries read the mapped bytes directly, so opening costs
+     * no more than validating the header and pages are only loaded when touched.
+     *
+     * @param file the snapshot file
+     * @return the dictionary stored in the snapshot
+     * @throws IOException if the file can not be read or is not a valid snapshot
+     */
+    public static FrozenDictionary map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Not a dictionary snapshot: " + file);
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
+
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a dictionary snapshot: " + file);
+        if (buffer.getInt(4) != VERSION)
+            throw new IOException("Unsupported dictionary snapshot version " + buffer.getInt(4) + ": " + file);
+
+        int nodes = buffer.getInt(8);
+        int edges = buffer.getInt(12);
+        if (nodes < 1 || edges != nodes - 1 || buffer.capacity() != snapshotBytes(nodes, edges))
+            throw new IOException("Corrupt dictionary snapshot: " + file);
+
+        buffer.position(HEADER_BYTES);
+        IntBuffer pops = slice(buffer, nodes * Integer.BYTES).asIntBuffer();
+        IntBuffer maxPops = slice(buffer, nodes * Integer.BYTES).asIntBuffer();
+        IntBuffer parents = slice(buffer, nodes * Integer.BYTES).asIntBuffer();
+        IntBuffer edgeStarts = slice(buffer, (nodes + 1) * Integer.BYTES).asIntBuffer();
+        IntBuffer edgeTargets = slice(buffer, edges * Integer.BYTES).asIntBuffer();
+        CharBuffer labels = slice(buffer, nodes * Character.BYTES).asCharBuffer();
+        CharBuffer edgeLabels = slice(buffer, edges * Character.BYTES).asCharBuffer();
+
+        return new FrozenDictionary(labels, parents, pops, maxPops, edgeStarts, edgeLabels, edgeTargets);
+    }
+
+    /**
+     * Writes this dictionary to the given file as a snapshot which can be opened
+     * with {@link #map(Path)}. An existing file is overwritten.
+     *
+     * @param file the snapshot file
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path file) throws IOException {
+        int nodes = size();
+        int edges = edgeTargets.limit();
+        ByteBuffer buffer = ByteBuffer.allocate(snapshotBytes(nodes, edges)).order(ByteOrder.BIG_ENDIAN);
+
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(nodes).putInt(edges);
+        for (IntBuffer ints : new IntBuffer[]{pops, maxPops, parents, edgeStarts, edgeTargets}) {
+            for (int i = 0; i < ints.limit(); i++) {
+                buffer.putInt(ints.get(i));
+            }
+        }
+        for (CharBuffer chars : new CharBuffer[]{labels, edgeLabels}) {
+            for (int i = 0; i < chars.limit(); i++) {
+                buffer.putChar(chars.get(i));
+            }
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes of a snapshot of the given number of nodes and edges
+     */
+    private static int snapshotBytes(int nodes, int edges) {
+        long bytes = HEADER_BYTES + (4L * nodes + 1 + edges) * Integer.BYTES + ((long) nodes + edges) * Character.BYTES;
+        if (bytes > Integer.MAX_VALUE)
+            throw new IllegalStateException("Dictionary too large for a snapshot: " + nodes + " nodes");
+        return (int) bytes;
+    }
+
+    /**
+     * @return the given number of bytes from the position of the buffer, after
+     * which the position is moved
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int bytes) {
+        ByteBuffer slice = buffer.slice().limit(bytes).order(buffer.order());
+        buffer.position(buffer.position() + bytes);
+        return slice;
+    }
+
+    /**
+     * @return the number of nodes in this dictionary
+     */
+    public int size() {
+        return pops.limit();
+    }
+
+    /**
+     * Determines whether or not the specified word is in this dictionary.
+     *
+     * @param word the word whose presence will be checked
+     * @return true if the specified word is stored in this dictionary; false otherwise
+     */
+    public boolean contains(String word) {
+        int node = followPrefix(word);
+        return node >= 0 && pops.get(node) != NO_WORD;
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the specified prefix, the
+     * prefix itself first if it is a word, like {@link DictionaryTree#predict(String, int)}.
+     * The subtree is searched best first using the highest popularity of every
+     * subtree, so only the nodes which can still hold one of the n words are visited.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        List<String> predictedList = new ArrayList<>();
+
+        // Like the tree, the empty prefix only predicts itself
+        if (prefix.length() == 0) {
+            if (n > 0 && pops.get(0) != NO_WORD)
+                predictedList.add(prefix);
+            return predictedList;
+        }
+
+        int node = followPrefix(prefix);
+        if (node < 0 || n <= 0)
+            return predictedList;
+
+        if (pops.get(node) != NO_WORD)
+            predictedList.add(prefix);
+
+        // Candidates are words and whole subtrees, the latter ranked by the best word
+        // they may hold. Words come out in order of popularity and then node number,
+        // i.e. alphabetically, which is the order the tree predicts in.
+        long[] heap = new long[16];
+        int heapSize = 0;
+        for (int e = edgeStarts.get(node); e < edgeStarts.get(node + 1); e++) {
+            heap = push(heap, heapSize++, maxPops.get(edgeTargets.get(e)), edgeTargets.get(e), true);
+        }
+
+        while (heapSize > 0 && predictedList.size() < n) {
+            long candidate = heap[0];
+            heapSize = poll(heap, heapSize);
+            int id = (int) candidate >>> 1;
+
+            if ((candidate & 1) == 0) {
+                predictedList.add(word(id));
+                continue;
+            }
+
+            if (pops.get(id) != NO_WORD)
+                heap = push(heap, heapSize++, pops.get(id), id, false);
+            for (int e = edgeStarts.get(id); e < edgeStarts.get(id + 1); e++) {
+                heap = push(heap, heapSize++, maxPops.get(edgeTargets.get(e)), edgeTargets.get(e), true);
+            }
+        }
+
+        return predictedList;
+    }
+
+    /**
+     * @return all words stored in this dictionary in alphabetical order
+     */
+    public List<String> allWords() {
+        List<String> listOfWords = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        int[] path = new int[16];
+        int depth = 0;
+
+        // The nodes are in preorder, so the word of a node extends the word of the
+        // closest ancestor still on the path
+        for (int node = 1; node < size(); node++) {
+            while (depth > 0 && path[depth - 1] != parents.get(node))
+                depth--;
+
+            if (depth == path.length)
+                path = Arrays.copyOf(path, depth * 2);
+            path[depth++] = node;
+            word.setLength(depth - 1);
+            word.append(labels.get(node));
+
+            if (pops.get(node) != NO_WORD)
+                listOfWords.add(word.toString());
+        }
+
+        return listOfWords;
+    }
+
+    /**
+     * Rebuilds a {@link DictionaryTree} holding the same words with the same
+     * popularities, which can be changed again, e.g. to recover from a snapshot.
+     * The tree caches the {@value DictionaryTree#DEFAULT_CACHE_SIZE} most popular
+     * completions at every node.
+     *
+     * @return a new tree with the words of this dictionary
+     */
+    public DictionaryTree thaw() {
+        return thaw(DictionaryTree.DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Rebuilds a {@link DictionaryTree} holding the same words with the same
+     * popularities, see {@link #thaw()}, which caches the given number of
+     * completions at every node. A snapshot does not record the cache size of the
+     * tree it was frozen from.
+     *
+     * @param cacheSize the number of completions cached per node
+     * @return a new tree with the words of this dictionary
+     */
+    public DictionaryTree thaw(int cacheSize) {
+        List<String> words = allWords();
+        int[] wordPops = new int[words.size()];
+        int word = 0;
+        // allWords lists the words in node order, which is the order of their pops
+        for (int node = 1; node < size(); node++) {
+            if (pops.get(node) != NO_WORD)
+                wordPops[word++] = pops.get(node);
+        }
+
+        return DictionaryTree.build(words, index -> wordPops[index], cacheSize, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param prefix the letters to follow from the root
+     * @return the node reached by following the given letters, or -1 if there is none
+     */
+    private int followPrefix(String prefix) {
+        int node = 0;
+
+        for (int i = 0; i < prefix.length() && node >= 0; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+
+        return node;
+    }
+
+    /**
+     * @return the child of the given node reached through the given letter, or -1
+     */
+    private int child(int node, char letter) {
+        int low = edgeStarts.get(node);
+        int high = edgeStarts.get(node + 1) - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (edgeLabels.get(middle) < letter)
+                low = middle + 1;
+            else if (edgeLabels.get(middle) > letter)
+                high = middle - 1;
+            else
+                return edgeTargets.get(middle);
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return the word ended by the given node, built by following its parents
+     */
+    private String word(int node) {
+        int length = 0;
+        for (int i = node; i != 0; i = parents.get(i)) {
+            length++;
+        }
+
+        char[] word = new char[length];
+        for (int i = node; i != 0; i = parents.get(i)) {
+            word[--length] = labels.get(i);
+        }
+
+        return new String(word);
+    }
+
+    /**
+     * Adds a candidate to the binary min-heap of encoded candidates, growing it if
+     * needed. The encoding orders higher popularities first, then lower node
+     * numbers, then the word of a node before its subtree.
+     *
+     * @return the heap, which may have been reallocated
+     */
+    private static long[] push(long[] heap, int size, int popularity, int node, boolean subtree) {
+        if (size == heap.length)
+            heap = Arrays.copyOf(heap, size * 2);
+
+        long rank = (long) Integer.MAX_VALUE - popularity;
+        long candidate = rank << 32 | (long) node << 1 | (subtree ? 1 : 0);
+
+        int i = size;
+        while (i > 0 && Long.compareUnsigned(candidate, heap[(i - 1) / 2]) < 0) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = candidate;
+
+        return heap;
+    }
+
+    /**
+     * Removes the first candidate from the binary min-heap.
+     *
+     * @return the new size of the heap
+     */
+    private static int poll(long[] heap, int size) {
+        long last = heap[--size];
+        int i = 0;
+
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && Long.compareUnsigned(heap[child + 1], heap[child]) < 0)
+                child++;
+            if (Long.compareUnsigned(heap[child], last) >= 0)
+                break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+
+        return size;
+    }
+}
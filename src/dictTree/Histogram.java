@@ -0,0 +1,164 @@
+package src.dictTree;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts non-negative values (e.g. latencies in nanoseconds) in buckets which
+ * grow with the values, so percentiles are known to within 1/8 of the value
+ * while the histogram stays a fixed few kilobytes. Values below 16 are counted
+ * exactly; larger ones share a bucket with the values which agree with them in
+ * the 4 highest bits. Any number of threads can record at once.
+ */
+public final class Histogram {
+
+    // Exact buckets for 0..15, then 8 buckets for every power of 2 up to 2^62
+    private static final int EXACT = 16;
+    private static final int SUB_BUCKETS = 8;
+    private static final int BUCKETS = EXACT + (63 - 4) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Counts the given value. Negative values are counted as 0.
+     *
+     * @param value the value counted
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts.incrementAndGet(bucket(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        if (value > max.get())
+            max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * Forgets every value counted so far.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Reads the counts into a snapshot. Values recorded while this runs may or may
+     * not be part of it.
+     *
+     * @return the summary of the values counted so far
+     */
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+
+        long largest = max.get();
+        return new Snapshot(total, total == 0 ? 0 : (double) sum.get() / total,
+                percentile(snapshot, total, 0.5, largest), percentile(snapshot, total, 0.99, largest),
+                percentile(snapshot, total, 0.999, largest), largest);
+    }
+
+    /**
+     * @return the index of the bucket counting the given value
+     */
+    private static int bucket(long value) {
+        if (value < EXACT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - 3)) & (SUB_BUCKETS - 1);
+        return EXACT + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the largest value counted by the given bucket
+     */
+    private static long highestValue(int bucket) {
+        if (bucket < EXACT)
+            return bucket;
+
+        int exponent = (bucket - EXACT) / SUB_BUCKETS + 4;
+        int subBucket = (bucket - EXACT) % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - 3)) - 1;
+    }
+
+    /**
+     * @return the smallest bucket bound which at least the given fraction of the
+     * values is not above, but no more than the largest value
+     */
+    private static long percentile(long[] counts, long total, double fraction, long largest) {
+        if (total == 0)
+            return 0;
+
+        long rank = (long) Math.ceil(fraction * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return Math.min(highestValue(i), largest);
+        }
+        return largest;
+    }
+
+    /**
+     * The number, mean, percentiles and largest of the values counted by a
+     * histogram at one point.
+     */
+    public static final class Snapshot {
+
+        private final long count;
+        private final double mean;
+        private final long p50;
+        private final long p99;
+        private final long p999;
+        private final long max;
+
+        Snapshot(long count, double mean, long p50, long p99, long p999, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getP999() {
+            return p999;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d mean=%.1f p50=%d p99=%d p999=%d max=%d", count, mean, p50, p99, p999, max);
+        }
+    }
+}
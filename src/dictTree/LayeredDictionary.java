@@ -0,0 +1,224 @@
+package src.dictTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * One user's view of a shared base dictionary: the base words plus the user's
+ * own words and popularities, minus the base words the user removed. Only the
+ * user's changes are stored, in a small delta tree and a set of tombstones, so
+ * many users can share one base without copying it and each costs memory in
+ * proportion to their own changes.
+ * <p>
+ * A word in the delta overrides the same word of the base, so inserting a base
+ * word or changing its popularity copies just that word into the delta. Removing
+ * a base word leaves a tombstone which hides it. predict merges the top words of
+ * both layers, asking the base for more words only when some of those it
+ * returned are hidden by the delta.
+ * <p>
+ * The base is only read, so it can be shared by the layers of any number of
+ * threads, but it must not change while they use it. A layer itself is not safe
+ * to change from several threads at once, like a DictionaryTree.
+ */
+public class LayeredDictionary {
+
+    private final DictionaryTree base;
+    private final DictionaryTree delta = new DictionaryTree();
+    // Base words this user overrode or removed, so one lookup tells whether a base
+    // word is still visible as it is; those not in the delta are tombstones
+    private final Set<String> hidden = new HashSet<>();
+
+    /**
+     * @param base the shared dictionary this one starts as, which must not be
+     *             changed while it is layered
+     */
+    public LayeredDictionary(DictionaryTree base) {
+        this.base = base;
+    }
+
+    /**
+     * Inserts the given word with a popularity of -1 if it is not visible in this
+     * dictionary yet. If it is, nothing will change.
+     *
+     * @param word the word to insert
+     */
+    public void insert(String word) {
+        if (!isVisible(word))
+            insert(word, -1);
+    }
+
+    /**
+     * Inserts the given word with the given popularity into the delta, overriding
+     * the popularity of the word in the base, if any.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        if (word.length() == 0)
+            return;
+        if (base.containsWord(word))
+            hidden.add(word);
+        delta.insert(word, popularity);
+    }
+
+    /**
+     * Changes the popularity of the given word if it is visible in this dictionary.
+     *
+     * @param word       the word whose popularity is changed
+     * @param popularity the new popularity
+     * @return true if the word was found; false otherwise
+     */
+    public boolean setPop(String word, int popularity) {
+        if (!isVisible(word))
+            return false;
+        insert(word, popularity);
+        return true;
+    }
+
+    /**
+     * Adds the given amount to the popularity of the given word, e.g. to boost a
+     * word this user picks often. A word which is not visible yet is inserted with
+     * the amount as its popularity. Popularities stop at the largest and smallest
+     * int values instead of overflowing.
+     *
+     * @param word   the word whose popularity is changed
+     * @param amount the amount added to its popularity
+     */
+    public void addPop(String word, int amount) {
+        long popularity = amount;
+        if (isVisible(word))
+            popularity += getPop(word);
+        insert(word, (int) Math.max(Integer.MIN_VALUE + 1, Math.min(Integer.MAX_VALUE, popularity)));
+    }
+
+    /**
+     * Removes the given word from this user's view, leaving a tombstone if the
+     * base holds it.
+     *
+     * @param word the word to remove
+     * @return true if the word was visible in this dictionary; false otherwise
+     */
+    public boolean remove(String word) {
+        boolean visible = isVisible(word);
+        if (delta.containsWord(word))
+            delta.remove(word);
+        if (visible && base.containsWord(word))
+            hidden.add(word);
+        return visible;
+    }
+
+    /**
+     * Determines whether or not the specified word is visible in this dictionary:
+     * in the delta, or in the base without a tombstone.
+     *
+     * @param word the word whose presence will be checked
+     * @return true if the word is visible; false otherwise
+     */
+    public boolean contains(String word) {
+        long start = DictionaryMetrics.start();
+        boolean visible = isVisible(word);
+        DictionaryMetrics.checked(start);
+        return visible;
+    }
+
+    /**
+     * @return whether the given word is visible, like {@link #contains(String)}
+     * without measuring it, for the checks made on the way to other operations
+     */
+    private boolean isVisible(String word) {
+        return delta.containsWord(word) || (!hidden.contains(word) && base.containsWord(word));
+    }
+
+    /**
+     * Returns the popularity of the given word, the one in the delta if it is there.
+     * If the word is not visible, returns -1.
+     *
+     * @param word the word whose popularity is returned
+     */
+    public int getPop(String word) {
+        if (delta.containsWord(word))
+            return delta.getPop(word);
+        return isVisible(word) ? base.getPop(word) : -1;
+    }
+
+    /**
+     * Predicts the (at most) n most popular visible words with the specified
+     * prefix, in the order of {@link DictionaryTree#predict(String, int)}.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        Prediction own = delta.predictWithPops(prefix, n);
+        return ShardedDictionary.merge(prefix, n, Arrays.asList(own, visibleBasePrediction(prefix, n)));
+    }
+
+    /**
+     * @return the (at most) n most popular base words with the given prefix which
+     * the delta does not override or remove, asking the base for twice as many
+     * words until enough of them are visible or the base has no more
+     */
+    private Prediction visibleBasePrediction(String prefix, int n) {
+        int asked = n;
+        while (true) {
+            Prediction prediction = base.predictWithPops(prefix, asked);
+            List<String> words = new ArrayList<>();
+            int[] pops = new int[prediction.getWords().size()];
+            for (int i = 0; i < prediction.getWords().size() && words.size() < n; i++) {
+                String word = prediction.getWords().get(i);
+                if (!hidden.contains(word)) {
+                    pops[words.size()] = prediction.getPopularity(i);
+                    words.add(word);
+                }
+            }
+
+            if (words.size() == n || prediction.getWords().size() < asked || asked > Integer.MAX_VALUE / 2)
+                return new Prediction(prefix, words, Arrays.copyOf(pops, words.size()));
+            asked *= 2;
+        }
+    }
+
+    /**
+     * @return all visible words in alphabetical order
+     */
+    public List<String> allWords() {
+        List<String> listOfWords = new ArrayList<>();
+        Iterator<String> own = delta.words().iterator();
+        Iterator<String> shared = base.words()
+                .filter(word -> !hidden.contains(word))
+                .iterator();
+
+        String nextOwn = own.hasNext() ? own.next() : null;
+        String nextShared = shared.hasNext() ? shared.next() : null;
+        while (nextOwn != null || nextShared != null) {
+            if (nextShared == null || (nextOwn != null && nextOwn.compareTo(nextShared) < 0)) {
+                listOfWords.add(nextOwn);
+                nextOwn = own.hasNext() ? own.next() : null;
+            } else {
+                listOfWords.add(nextShared);
+                nextShared = shared.hasNext() ? shared.next() : null;
+            }
+        }
+
+        return listOfWords;
+    }
+
+    /**
+     * @return the number of words this user inserted, changed or removed, which the
+     * memory of this layer is proportional to
+     */
+    public int deltaSize() {
+        int tombstones = 0;
+        for (String word : hidden) {
+            if (!delta.containsWord(word))
+                tombstones++;
+        }
+        return (int) delta.words().count() + tombstones;
+    }
+}
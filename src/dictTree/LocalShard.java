@@ -0,0 +1,36 @@
+package src.dictTree;
+
+/**
+ * A shard kept in this JVM by a {@link ConcurrentDictionaryTree}.
+ */
+public class LocalShard implements DictionaryShard {
+
+    private final ConcurrentDictionaryTree dictionary;
+
+    /**
+     * @param dictionary the dictionary holding the words of the shard
+     */
+    public LocalShard(ConcurrentDictionaryTree dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public boolean contains(String word) {
+        return dictionary.contains(word);
+    }
+
+    @Override
+    public void insert(String word, int popularity) {
+        dictionary.insert(word, popularity);
+    }
+
+    @Override
+    public Prediction predict(String prefix, int n) {
+        return dictionary.predictWithPops(prefix, n);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
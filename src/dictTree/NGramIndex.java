@@ -0,0 +1,541 @@
+package src.dictTree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predicts the next word from the one or two words before it, built from the
+ * bigrams and trigrams of a corpus, along with a {@link DictionaryTree} of the
+ * corpus words which completes the word being typed.
+ * <p>
+ * Words are numbered in alphabetical order and a context, the one or two words
+ * before the predicted one, is packed into a long. Only the most frequent
+ * successors of every context are kept, most frequent first, in flat int arrays
+ * shared by all contexts:
+ * <pre>
+ * long[contexts] contexts (ascending), int[contexts + 1] starts,
+ * int[successors] successors, int[successors] counts
+ * </pre>
+ * so a lookup is a binary search for the context followed by reading its first
+ * successors, without counting or sorting anything. Words the trigram context
+ * predicts come first, then those of the bigram context, then the most frequent
+ * words of the corpus.
+ * <p>
+ * The corpus is split into words of letters, digits and apostrophes, in lower
+ * case; '.', '!' and '?' end a sentence, and no n-gram spans two sentences. The
+ * index is immutable once built, so any number of threads can use it.
+ */
+public class NGramIndex {
+
+    /**
+     * The number of successors kept per context by default.
+     */
+    public static final int DEFAULT_TOP_K = 10;
+
+    // Word numbers, plus one so 0 means no word, take WORD_BITS bits of a key
+    private static final int WORD_BITS = 21;
+    private static final int MAX_WORDS = (1 << WORD_BITS) - 2;
+    private static final long WORD_MASK = (1L << WORD_BITS) - 1;
+    // Marks the end of a sentence in the numbered corpus
+    private static final int SENTENCE_END = -1;
+
+    // All words in alphabetical order, so a word's number is its index
+    private final String[] words;
+    private final int[] wordCounts;
+    // The most frequent words, for contexts with no or too few successors
+    private final int[] topWords;
+
+    private final long[] contexts;
+    private final int[] starts;
+    private final int[] successors;
+    private final int[] counts;
+
+    private final long bigrams;
+    private final long trigrams;
+    private final DictionaryTree dictionary;
+
+    private NGramIndex(String[] words, int[] wordCounts, int[] topWords, long[] contexts, int[] starts,
+                       int[] successors, int[] counts, long bigrams, long trigrams) {
+        this.words = words;
+        this.wordCounts = wordCounts;
+        this.topWords = topWords;
+        this.contexts = contexts;
+        this.starts = starts;
+        this.successors = successors;
+        this.counts = counts;
+        this.bigrams = bigrams;
+        this.trigrams = trigrams;
+        this.dictionary = DictionaryTree.build(Arrays.asList(words), index -> wordCounts[index]);
+    }
+
+    /**
+     * Builds the index of the given UTF-8 text file, keeping the
+     * {@value #DEFAULT_TOP_K} most frequent successors of every context.
+     *
+     * @param corpus the text file
+     * @return the index of the corpus
+     * @throws IOException if the file can not be read
+     */
+    public static NGramIndex build(Path corpus) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.UTF_8)) {
+            return build(reader, DEFAULT_TOP_K);
+        }
+    }
+
+    /**
+     * Builds the index of the given text.
+     *
+     * @param corpus the text, which is read to its end but not closed
+     * @param topK   the number of successors kept per context
+     * @return the index of the corpus
+     * @throws IOException if the text can not be read
+     */
+    public static NGramIndex build(Reader corpus, int topK) throws IOException {
+        if (topK < 1)
+            throw new IllegalArgumentException("topK must be positive: " + topK);
+
+        // Numbers the words in the order they first come, renumbered alphabetically below
+        Map<String, Integer> numbers = new HashMap<>();
+        List<String> firstSeen = new ArrayList<>();
+        IntList tokens = new IntList();
+        Tokenizer tokenizer = new Tokenizer(corpus);
+        String token;
+        while ((token = tokenizer.next()) != null) {
+            if (token.isEmpty()) {
+                tokens.add(SENTENCE_END);
+                continue;
+            }
+            Integer number = numbers.get(token);
+            if (number == null) {
+                if (firstSeen.size() == MAX_WORDS)
+                    throw new IllegalStateException("More than " + MAX_WORDS + " distinct words");
+                number = firstSeen.size();
+                numbers.put(token, number);
+                firstSeen.add(token);
+            }
+            tokens.add(number);
+        }
+
+        String[] words = firstSeen.toArray(new String[0]);
+        Arrays.sort(words);
+        int[] renumber = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            renumber[numbers.get(words[i])] = i;
+        }
+
+        int[] wordCounts = new int[words.length];
+        long[] keys = new long[2 * tokens.size];
+        int keyCount = 0;
+        int previous = SENTENCE_END;
+        int beforePrevious = SENTENCE_END;
+        for (int i = 0; i < tokens.size; i++) {
+            int word = tokens.values[i] == SENTENCE_END ? SENTENCE_END : renumber[tokens.values[i]];
+            if (word != SENTENCE_END) {
+                wordCounts[word]++;
+                if (previous != SENTENCE_END)
+                    keys[keyCount++] = context(SENTENCE_END, previous) << WORD_BITS | word;
+                if (beforePrevious != SENTENCE_END && previous != SENTENCE_END)
+                    keys[keyCount++] = context(beforePrevious, previous) << WORD_BITS | word;
+            }
+            beforePrevious = previous;
+            previous = word;
+        }
+        Arrays.sort(keys, 0, keyCount);
+
+        return index(words, wordCounts, keys, keyCount, topK);
+    }
+
+    /**
+     * Counts the sorted n-gram keys and keeps the topK most frequent successors of
+     * every context.
+     */
+    private static NGramIndex index(String[] words, int[] wordCounts, long[] keys, int keyCount, int topK) {
+        LongList contexts = new LongList();
+        IntList starts = new IntList();
+        IntList successors = new IntList();
+        IntList counts = new IntList();
+        long bigrams = 0;
+        long trigrams = 0;
+
+        // The distinct successors of the current context and their counts
+        int[] groupWords = new int[16];
+        int[] groupCounts = new int[16];
+        int i = 0;
+        while (i < keyCount) {
+            long context = keys[i] >>> WORD_BITS;
+            int group = 0;
+            while (i < keyCount && keys[i] >>> WORD_BITS == context) {
+                long key = keys[i];
+                int count = 0;
+                while (i < keyCount && keys[i] == key) {
+                    count++;
+                    i++;
+                }
+                if (group == groupWords.length) {
+                    groupWords = Arrays.copyOf(groupWords, group * 2);
+                    groupCounts = Arrays.copyOf(groupCounts, group * 2);
+                }
+                groupWords[group] = (int) (key & WORD_MASK);
+                groupCounts[group++] = count;
+            }
+
+            if (context >>> WORD_BITS == 0)
+                bigrams += group;
+            else
+                trigrams += group;
+
+            contexts.add(context);
+            starts.add(successors.size);
+            for (int successor : mostFrequent(groupWords, groupCounts, group, topK)) {
+                successors.add(groupWords[successor]);
+                counts.add(groupCounts[successor]);
+            }
+        }
+        starts.add(successors.size);
+
+        int[] allWords = new int[words.length];
+        for (int w = 0; w < allWords.length; w++) {
+            allWords[w] = w;
+        }
+        int[] topIndexes = mostFrequent(allWords, wordCounts, allWords.length, topK);
+
+        return new NGramIndex(words, wordCounts, topIndexes, contexts.toArray(), starts.toArray(),
+                successors.toArray(), counts.toArray(), bigrams, trigrams);
+    }
+
+    /**
+     * @return the indexes of the (at most) k highest counts among the first size,
+     * highest first, equal counts in order of their words, i.e. alphabetically
+     */
+    private static int[] mostFrequent(int[] words, int[] counts, int size, int k) {
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, (a, b) -> counts[a] != counts[b] ? Integer.compare(counts[b], counts[a])
+                : Integer.compare(words[a], words[b]));
+
+        int[] top = new int[Math.min(k, size)];
+        for (int i = 0; i < top.length; i++) {
+            top[i] = indexes[i];
+        }
+        return top;
+    }
+
+    /**
+     * @return the key of the context of the given words, the first of which may be
+     * SENTENCE_END for a context of one word
+     */
+    private static long context(int beforePrevious, int previous) {
+        return (long) (beforePrevious + 1) << WORD_BITS | (previous + 1);
+    }
+
+    /**
+     * Predicts the (at most) n words most likely to follow the given text: the most
+     * frequent successors of its last two words, then of its last word, then the
+     * most frequent words of the corpus. The last word is taken as complete.
+     *
+     * @param text the text typed so far
+     * @param n    the maximum number of words returned
+     * @return the (at most) n most likely next words
+     */
+    public List<String> predictNext(String text, int n) {
+        int[] context = lastWords(Tokenizer.words(text));
+        return predictNext(context[0], context[1], n, null);
+    }
+
+    /**
+     * Completes the word being typed at the end of the given text and predicts the
+     * word after it. If the text ends in the middle of a word, its completions are
+     * the words which follow the words before it and start with the letters typed,
+     * then the most frequent other words of the corpus starting with them, and
+     * the next words are predicted as if the best completion was typed. Otherwise
+     * there are no completions and the next words follow the text.
+     *
+     * @param text the text typed so far
+     * @param n    the maximum number of completions and of next words
+     * @return the completions of the current word and the predicted next words
+     */
+    public Suggestions suggest(String text, int n) {
+        List<String> typed = Tokenizer.words(text);
+        boolean inWord = text.length() > 0 && Tokenizer.isWordChar(text.charAt(text.length() - 1))
+                && !typed.isEmpty();
+        if (!inWord)
+            return new Suggestions(Collections.emptyList(), predictNext(text, n));
+
+        String partial = typed.remove(typed.size() - 1);
+        int[] context = lastWords(typed);
+        List<String> completions = predictNext(context[0], context[1], n, partial);
+        for (String word : dictionary.predict(partial, n)) {
+            if (completions.size() == n)
+                break;
+            if (!completions.contains(word))
+                completions.add(word);
+        }
+
+        List<String> nextWords = Collections.emptyList();
+        if (!completions.isEmpty()) {
+            int completed = Arrays.binarySearch(words, completions.get(0));
+            nextWords = predictNext(context[1], completed, n, null);
+        }
+        return new Suggestions(completions, nextWords);
+    }
+
+    /**
+     * @return the numbers of the last two words of the given ones, SENTENCE_END for
+     * any missing or not in the corpus
+     */
+    private int[] lastWords(List<String> typed) {
+        int[] context = {SENTENCE_END, SENTENCE_END};
+        for (int i = Math.max(0, typed.size() - 2); i < typed.size(); i++) {
+            // Words not in the corpus give binarySearch's negative insertion points
+            context[i - typed.size() + 2] = Math.max(Arrays.binarySearch(words, typed.get(i)), SENTENCE_END);
+        }
+        return context;
+    }
+
+    /**
+     * @return the (at most) n most likely successors of the given words which start
+     * with the given letters (any if null), backing off from both words to the
+     * last one to none
+     */
+    private List<String> predictNext(int beforePrevious, int previous, int n, String startingWith) {
+        List<String> predicted = new ArrayList<>();
+        if (previous != SENTENCE_END && beforePrevious != SENTENCE_END)
+            addSuccessors(predicted, context(beforePrevious, previous), n, startingWith);
+        if (previous != SENTENCE_END)
+            addSuccessors(predicted, context(SENTENCE_END, previous), n, startingWith);
+        if (startingWith == null) {
+            for (int i = 0; i < topWords.length && predicted.size() < n; i++) {
+                if (!predicted.contains(words[topWords[i]]))
+                    predicted.add(words[topWords[i]]);
+            }
+        }
+        return predicted;
+    }
+
+    private void addSuccessors(List<String> predicted, long context, int n, String startingWith) {
+        int index = Arrays.binarySearch(contexts, context);
+        if (index < 0)
+            return;
+        for (int i = starts[index]; i < starts[index + 1] && predicted.size() < n; i++) {
+            String word = words[successors[i]];
+            if ((startingWith == null || word.startsWith(startingWith)) && !predicted.contains(word))
+                predicted.add(word);
+        }
+    }
+
+    /**
+     * @param word a word
+     * @return the number of times the word occurs in the corpus
+     */
+    public int count(String word) {
+        int number = Arrays.binarySearch(words, word);
+        return number < 0 ? 0 : wordCounts[number];
+    }
+
+    /**
+     * @return the tree of the corpus words, whose popularities are their counts
+     */
+    public DictionaryTree dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return the number of distinct words in the corpus
+     */
+    public int wordCount() {
+        return words.length;
+    }
+
+    /**
+     * @return the number of distinct bigrams in the corpus
+     */
+    public long bigramCount() {
+        return bigrams;
+    }
+
+    /**
+     * @return the number of distinct trigrams in the corpus
+     */
+    public long trigramCount() {
+        return trigrams;
+    }
+
+    /**
+     * @return the number of successors kept, at most topK per context
+     */
+    public int storedSuccessors() {
+        return successors.length;
+    }
+
+    /**
+     * @return the number of bytes of the arrays of contexts and successors, which
+     * does not include the words themselves or the dictionary
+     */
+    public long indexBytes() {
+        return (long) contexts.length * Long.BYTES
+                + ((long) starts.length + successors.length + counts.length + topWords.length) * Integer.BYTES;
+    }
+
+    /**
+     * The completions of the word being typed and the words predicted after it.
+     */
+    public static final class Suggestions {
+
+        private final List<String> completions;
+        private final List<String> nextWords;
+
+        Suggestions(List<String> completions, List<String> nextWords) {
+            this.completions = Collections.unmodifiableList(completions);
+            this.nextWords = Collections.unmodifiableList(nextWords);
+        }
+
+        /**
+         * @return the completions of the word being typed, most likely first
+         */
+        public List<String> getCompletions() {
+            return completions;
+        }
+
+        /**
+         * @return the words most likely to come next, most likely first
+         */
+        public List<String> getNextWords() {
+            return nextWords;
+        }
+
+        @Override
+        public String toString() {
+            return completions + " " + nextWords;
+        }
+    }
+
+    /**
+     * Splits text into lower case words of letters, digits and apostrophes,
+     * returning "" at the end of every sentence.
+     */
+    private static final class Tokenizer {
+
+        private final Reader in;
+        private final StringBuilder word = new StringBuilder();
+        private boolean sentenceEnded = false;
+
+        Tokenizer(Reader in) {
+            this.in = in;
+        }
+
+        static boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '\'';
+        }
+
+        static boolean endsSentence(char c) {
+            return c == '.' || c == '!' || c == '?';
+        }
+
+        /**
+         * @return the words of the last sentence of the given text in lower case,
+         * the last one possibly unfinished, none if the text ends a sentence
+         */
+        static List<String> words(String text) {
+            List<String> words = new ArrayList<>();
+            for (int start = 0, i = 0; i <= text.length(); i++) {
+                char c = i < text.length() ? text.charAt(i) : ' ';
+                if (isWordChar(c))
+                    continue;
+                if (i > start)
+                    words.add(lowerCase(text, start, i));
+                if (endsSentence(c))
+                    words.clear();
+                start = i + 1;
+            }
+            return words;
+        }
+
+        private static String lowerCase(String text, int start, int end) {
+            char[] letters = new char[end - start];
+            for (int i = start; i < end; i++) {
+                letters[i - start] = Character.toLowerCase(text.charAt(i));
+            }
+            return new String(letters);
+        }
+
+        /**
+         * @return the next word, "" at the end of a sentence, or null at the end of
+         * the text
+         */
+        String next() throws IOException {
+            if (sentenceEnded) {
+                sentenceEnded = false;
+                return "";
+            }
+
+            word.setLength(0);
+            int c;
+            while ((c = in.read()) >= 0) {
+                if (isWordChar((char) c)) {
+                    word.append(Character.toLowerCase((char) c));
+                    continue;
+                }
+                if (endsSentence((char) c)) {
+                    if (word.length() > 0) {
+                        sentenceEnded = true;
+                        return word.toString();
+                    }
+                    return "";
+                }
+                if (word.length() > 0)
+                    return word.toString();
+            }
+            return word.length() > 0 ? word.toString() : null;
+        }
+    }
+
+    /**
+     * A growable array of ints, to count without boxing.
+     */
+    private static final class IntList {
+
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * A growable array of longs.
+     */
+    private static final class LongList {
+
+        private long[] values = new long[1024];
+        private int size = 0;
+
+        void add(long value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,378 @@
+package src.dictTree;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A dictionary which keeps its nodes outside the Java heap, for vocabularies so
+ * large that millions of node objects would fill the old generation and make
+ * every full collection slow. Words can be inserted, checked and predicted like
+ * in a {@link DictionaryTree}, but the heap only holds this object and the list
+ * of its memory chunks, whatever the number of words.
+ * <p>
+ * Every node is a fixed size record in direct ByteBuffers of
+ * {@value #NODES_PER_CHUNK} nodes each, allocated as the dictionary grows:
+ * <pre>
+ * int pop, int maxPop, int firstChild, int nextSibling, char label
+ * </pre>
+ * The children of a node are a list linked through nextSibling in ascending
+ * order of their labels, so the nodes never move once written. maxPop is the
+ * highest popularity in the subtree, which predictions use to search best first
+ * like {@link FrozenDictionary} does.
+ * <p>
+ * Direct memory is limited by -XX:MaxDirectMemorySize, which defaults to the
+ * maximum heap size, so a small heap needs the limit raised, e.g.
+ * {@code java -Xmx64m -XX:MaxDirectMemorySize=2g}. The memory is given back
+ * when the dictionary is garbage collected. Like a DictionaryTree, this is not
+ * safe to change from several threads at once.
+ */
+public class OffHeapDictionary {
+
+    // The popularity of a node which does not end a word
+    private static final int NO_WORD = Integer.MIN_VALUE;
+    private static final int NO_NODE = -1;
+
+    private static final int POP = 0;
+    private static final int MAX_POP = 4;
+    private static final int FIRST_CHILD = 8;
+    private static final int NEXT_SIBLING = 12;
+    private static final int LABEL = 16;
+    private static final int NODE_BYTES = 20;
+
+    static final int NODES_PER_CHUNK = 1 << 16;
+    private static final int CHUNK_SHIFT = 16;
+
+    private ByteBuffer[] chunks = new ByteBuffer[16];
+    private int nodes = 0;
+
+    /**
+     * Creates an empty dictionary, which only allocates its first chunk.
+     */
+    public OffHeapDictionary() {
+        newNode((char) 0, NO_NODE);
+    }
+
+    /**
+     * Inserts the given word into this dictionary with a popularity of -1. If the
+     * word already exists, nothing will change.
+     *
+     * @param word the word to insert
+     */
+    public void insert(String word) {
+        if (word.length() > 0) {
+            int[] path = insertPath(word);
+            if (getInt(path[word.length()], POP) == NO_WORD)
+                setPop(path, -1);
+        }
+    }
+
+    /**
+     * Inserts the given word into this dictionary with the given popularity. If the
+     * word already exists, the popularity will be overwritten by the given value.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        if (word.length() > 0)
+            setPop(insertPath(word), popularity);
+    }
+
+    /**
+     * Determines whether or not the specified word is in this dictionary.
+     *
+     * @param word the word whose presence will be checked
+     * @return true if the specified word is stored in this dictionary; false otherwise
+     */
+    public boolean contains(CharSequence word) {
+        int node = followPrefix(word);
+        return node != NO_NODE && getInt(node, POP) != NO_WORD;
+    }
+
+    /**
+     * Returns the popularity of the given word.
+     * If the word is not there, returns -1.
+     *
+     * @param word the word whose popularity is returned
+     */
+    public int getPop(CharSequence word) {
+        int node = followPrefix(word);
+        return node == NO_NODE || getInt(node, POP) == NO_WORD ? -1 : getInt(node, POP);
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the specified prefix, the
+     * prefix itself first if it is a word, like {@link DictionaryTree#predict(String, int)}.
+     * The subtree is searched best first using the highest popularity of every
+     * subtree, so only the nodes which can still hold one of the n words are visited.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        List<String> predictedList = new ArrayList<>();
+
+        // Like in the tree, the empty prefix has no completions, and it is never a word
+        int node = prefix.length() > 0 ? followPrefix(prefix) : NO_NODE;
+        if (node == NO_NODE || n <= 0)
+            return predictedList;
+
+        if (getInt(node, POP) != NO_WORD)
+            predictedList.add(prefix);
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        addChildren(candidates, new Candidate(NO_WORD, null, (char) 0, node, true, prefix));
+        while (!candidates.isEmpty() && predictedList.size() < n) {
+            Candidate candidate = candidates.poll();
+
+            if (!candidate.subtree) {
+                predictedList.add(candidate.word());
+                continue;
+            }
+
+            int pop = getInt(candidate.node, POP);
+            if (pop != NO_WORD)
+                candidates.add(new Candidate(pop, candidate.parent, candidate.label, candidate.node, false,
+                        candidate.word));
+            addChildren(candidates, candidate);
+        }
+
+        return predictedList;
+    }
+
+    private void addChildren(PriorityQueue<Candidate> candidates, Candidate parent) {
+        int node = parent.node;
+        for (int child = getInt(node, FIRST_CHILD); child != NO_NODE; child = getInt(child, NEXT_SIBLING)) {
+            candidates.add(new Candidate(getInt(child, MAX_POP), parent, getChar(child), child, true, null));
+        }
+    }
+
+    /**
+     * @return all words stored in this dictionary in alphabetical order
+     */
+    public List<String> allWords() {
+        List<String> listOfWords = new ArrayList<>();
+        addWords(0, new StringBuilder(), listOfWords);
+        return listOfWords;
+    }
+
+    private void addWords(int node, StringBuilder word, List<String> listOfWords) {
+        for (int child = getInt(node, FIRST_CHILD); child != NO_NODE; child = getInt(child, NEXT_SIBLING)) {
+            word.append(getChar(child));
+            if (getInt(child, POP) != NO_WORD)
+                listOfWords.add(word.toString());
+            addWords(child, word, listOfWords);
+            word.setLength(word.length() - 1);
+        }
+    }
+
+    /**
+     * @return the number of nodes in this dictionary
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of bytes of direct memory allocated for the nodes
+     */
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null)
+                bytes += chunk.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Goes through the dictionary letter by letter, creating a node to store a
+     * letter whenever it can not find it.
+     *
+     * @return the nodes on the path of the word, the root first
+     */
+    private int[] insertPath(String word) {
+        int[] path = new int[word.length() + 1];
+
+        for (int i = 0; i < word.length(); i++) {
+            path[i + 1] = childOrCreate(path[i], word.charAt(i));
+        }
+
+        return path;
+    }
+
+    /**
+     * @return the child of the given node reached through the given letter, which
+     * is linked in among its siblings if it did not exist
+     */
+    private int childOrCreate(int parent, char letter) {
+        int previous = NO_NODE;
+        int child = getInt(parent, FIRST_CHILD);
+        while (child != NO_NODE && getChar(child) < letter) {
+            previous = child;
+            child = getInt(child, NEXT_SIBLING);
+        }
+        if (child != NO_NODE && getChar(child) == letter)
+            return child;
+
+        int created = newNode(letter, child);
+        if (previous == NO_NODE)
+            putInt(parent, FIRST_CHILD, created);
+        else
+            putInt(previous, NEXT_SIBLING, created);
+        return created;
+    }
+
+    /**
+     * Sets the popularity of the last node of the given path and brings the highest
+     * popularities of the nodes above it up to date. A node's children are only
+     * looked at again when the value which was its highest went down; the update
+     * stops at the first node which does not change.
+     */
+    private void setPop(int[] path, int popularity) {
+        int last = path[path.length - 1];
+        int oldValue = getInt(last, POP);
+        int newValue = popularity;
+        putInt(last, POP, popularity);
+
+        for (int i = path.length - 1; i >= 0; i--) {
+            int node = path[i];
+            int oldMax = getInt(node, MAX_POP);
+            int newMax;
+            if (newValue >= oldMax)
+                newMax = newValue;
+            else if (oldValue < oldMax)
+                break;
+            else
+                newMax = highestPop(node);
+
+            if (newMax == oldMax)
+                break;
+            putInt(node, MAX_POP, newMax);
+            oldValue = oldMax;
+            newValue = newMax;
+        }
+    }
+
+    /**
+     * @return the highest popularity of the given node and its children's subtrees
+     */
+    private int highestPop(int node) {
+        int maxPop = getInt(node, POP);
+        for (int child = getInt(node, FIRST_CHILD); child != NO_NODE; child = getInt(child, NEXT_SIBLING)) {
+            maxPop = Math.max(maxPop, getInt(child, MAX_POP));
+        }
+        return maxPop;
+    }
+
+    /**
+     * @return the node reached by following the given letters from the root, or
+     * NO_NODE if there is none
+     */
+    private int followPrefix(CharSequence prefix) {
+        int node = 0;
+
+        for (int i = 0; i < prefix.length() && node != NO_NODE; i++) {
+            char letter = prefix.charAt(i);
+            int child = getInt(node, FIRST_CHILD);
+            while (child != NO_NODE && getChar(child) < letter)
+                child = getInt(child, NEXT_SIBLING);
+            node = child != NO_NODE && getChar(child) == letter ? child : NO_NODE;
+        }
+
+        return node;
+    }
+
+    /**
+     * Writes a new node without children and word, allocating another chunk if the
+     * last one is full.
+     *
+     * @return the number of the node
+     */
+    private int newNode(char letter, int nextSibling) {
+        if (nodes == Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many nodes");
+
+        int chunk = nodes >>> CHUNK_SHIFT;
+        if (chunk == chunks.length)
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        if (chunks[chunk] == null)
+            chunks[chunk] = ByteBuffer.allocateDirect(NODES_PER_CHUNK * NODE_BYTES).order(ByteOrder.nativeOrder());
+
+        int node = nodes++;
+        putInt(node, POP, NO_WORD);
+        putInt(node, MAX_POP, NO_WORD);
+        putInt(node, FIRST_CHILD, NO_NODE);
+        putInt(node, NEXT_SIBLING, nextSibling);
+        chunks[chunk].putChar(offset(node) + LABEL, letter);
+        return node;
+    }
+
+    private static int offset(int node) {
+        return (node & (NODES_PER_CHUNK - 1)) * NODE_BYTES;
+    }
+
+    private int getInt(int node, int field) {
+        return chunks[node >>> CHUNK_SHIFT].getInt(offset(node) + field);
+    }
+
+    private void putInt(int node, int field, int value) {
+        chunks[node >>> CHUNK_SHIFT].putInt(offset(node) + field, value);
+    }
+
+    private char getChar(int node) {
+        return chunks[node >>> CHUNK_SHIFT].getChar(offset(node) + LABEL);
+    }
+
+    /**
+     * A word, or a subtree ranked by the best word it may hold. Candidates come
+     * out most popular first, then alphabetically. No word of a subtree comes
+     * alphabetically before the letters leading to it, so a subtree is taken
+     * apart before any word which one of its words could precede. The letters are
+     * only put together when needed, which is rare for anything but the words
+     * predicted, as popularities are hardly ever equal.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final int popularity;
+        // The candidate whose node is the parent of this one's, and the letter leading from it
+        private final Candidate parent;
+        private final char label;
+        private final int node;
+        private final boolean subtree;
+        private String word;
+
+        Candidate(int popularity, Candidate parent, char label, int node, boolean subtree, String word) {
+            this.popularity = popularity;
+            this.parent = parent;
+            this.label = label;
+            this.node = node;
+            this.subtree = subtree;
+            this.word = word;
+        }
+
+        /**
+         * @return the letters leading to the node of this candidate, prefix included
+         */
+        String word() {
+            if (word == null)
+                word = parent.word() + label;
+            return word;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (popularity != other.popularity)
+                return Integer.compare(other.popularity, popularity);
+            int byWord = word().compareTo(other.word());
+            if (byWord != 0)
+                return byWord;
+            return Boolean.compare(other.subtree, subtree);
+        }
+    }
+}
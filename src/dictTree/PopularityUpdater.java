@@ -0,0 +1,122 @@
+package src.dictTree;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a stream of "word selected" events, e.g. from a query log, into
+ * popularity changes of a {@link ConcurrentDictionaryTree}.
+ *
+ * Events are counted per word until batchSize of them have come in, then the
+ * counts are added to the popularities in one change of the dictionary, so a
+ * word selected a thousand times costs one update rather than a thousand.
+ * Predictions are never held up, as the dictionary keeps answering from the
+ * previous version while a batch is applied.
+ *
+ * To let old selections count less than new ones, call {@link #decay(double)}
+ * periodically, e.g. every hour from a ScheduledExecutorService.
+ */
+public class PopularityUpdater {
+
+    private final ConcurrentDictionaryTree dictionary;
+    private final int batchSize;
+
+    // Guarded by this
+    private Map<String, Integer> counts = new HashMap<>();
+    private int pendingEvents = 0;
+    private long events = 0;
+    private long batches = 0;
+
+    /**
+     * @param dictionary the dictionary whose popularities are updated
+     * @param batchSize  the number of events counted before they are applied
+     */
+    public PopularityUpdater(ConcurrentDictionaryTree dictionary, int batchSize) {
+        if (batchSize < 1)
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        this.dictionary = dictionary;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Counts one selection of the given word.
+     *
+     * @param word the word selected
+     */
+    public void record(String word) {
+        record(word, 1);
+    }
+
+    /**
+     * Counts the given number of selections of the given word.
+     *
+     * @param word  the word selected
+     * @param count the number of times it was selected
+     */
+    public synchronized void record(String word, int count) {
+        counts.merge(word, count, Integer::sum);
+        events++;
+        if (++pendingEvents >= batchSize)
+            flush();
+    }
+
+    /**
+     * Counts one selection for every line of the given reader until it ends,
+     * then applies all counted events.
+     *
+     * @param events the selected words, one per line
+     * @return the number of events read
+     * @throws IOException if there was a problem reading the events
+     */
+    public long ingest(BufferedReader events) throws IOException {
+        long read = 0;
+        String word;
+        while ((word = events.readLine()) != null) {
+            record(word);
+            read++;
+        }
+
+        flush();
+        return read;
+    }
+
+    /**
+     * Adds the events counted so far to the popularities of their words.
+     */
+    public synchronized void flush() {
+        if (counts.isEmpty())
+            return;
+
+        dictionary.addPops(counts);
+        counts = new HashMap<>();
+        pendingEvents = 0;
+        batches++;
+    }
+
+    /**
+     * Applies the events counted so far, then multiplies all positive popularities
+     * by the given factor, see {@link ConcurrentDictionaryTree#decayPops(double)}.
+     *
+     * @param factor the factor between 0 and 1 every positive popularity is multiplied by
+     */
+    public synchronized void decay(double factor) {
+        flush();
+        dictionary.decayPops(factor);
+    }
+
+    /**
+     * @return the number of events recorded
+     */
+    public synchronized long events() {
+        return events;
+    }
+
+    /**
+     * @return the number of batches applied to the dictionary
+     */
+    public synchronized long batches() {
+        return batches;
+    }
+}
@@ -0,0 +1,54 @@
+package src.dictTree;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The words predicted for a prefix along with their popularities, so predictions
+ * made by different dictionaries can be merged into one.
+ */
+public final class Prediction {
+
+    private final String prefix;
+    private final List<String> words;
+    private final int[] popularities;
+
+    /**
+     * @param prefix       the prefix the words were predicted for
+     * @param words        the predicted words in the order of
+     *                     {@link DictionaryTree#predict(String, int)}
+     * @param popularities the popularities of the words, at the same indexes
+     */
+    public Prediction(String prefix, List<String> words, int[] popularities) {
+        if (words.size() != popularities.length)
+            throw new IllegalArgumentException(words.size() + " words but " + popularities.length + " popularities");
+        this.prefix = prefix;
+        this.words = Collections.unmodifiableList(words);
+        this.popularities = popularities.clone();
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * @return the predicted words, which can not be modified
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * @param index the index of a predicted word
+     * @return the popularity of the word at the given index
+     */
+    public int getPopularity(int index) {
+        return popularities[index];
+    }
+
+    @Override
+    public String toString() {
+        return prefix + " -> " + words + " " + Arrays.toString(popularities);
+    }
+}
@@ -0,0 +1,455 @@
+package src.dictTree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A dictionary like {@link DictionaryTree} whose chains of nodes with a single
+ * child and no word are merged into one node: every node is reached by a whole
+ * label of one or more letters instead of a single letter. Long words then cost
+ * a few nodes instead of one per letter, and lookups hop through that many.
+ * <p>
+ * Inserting a word which parts from a label in its middle splits the node there;
+ * removing a word merges a node left with a single child back into that child.
+ * contains, predict, allWords and the statistics behave like those of the tree,
+ * except that size() counts the (fewer) nodes of this tree. height() still
+ * counts letters, so it is the length of the longest word in both.
+ */
+public class RadixDictionaryTree {
+
+    // The popularity of a node which does not end a word
+    private static final int NO_WORD = Integer.MIN_VALUE;
+
+    private static final char[] NO_LETTERS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node(NO_LETTERS);
+    private int nodes = 1;
+
+    /**
+     * Inserts the given word into this dictionary with a popularity of -1. If the
+     * word already exists, nothing will change.
+     *
+     * @param word the word to insert
+     */
+    public void insert(String word) {
+        if (word.length() > 0) {
+            List<Node> path = insertPath(word);
+            if (path.get(path.size() - 1).pop == NO_WORD)
+                setPop(path, -1);
+        }
+    }
+
+    /**
+     * Inserts the given word into this dictionary with the given popularity. If the
+     * word already exists, the popularity will be overwritten by the given value.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        if (word.length() > 0)
+            setPop(insertPath(word), popularity);
+    }
+
+    /**
+     * Follows the word from the root, splitting the node where the word parts from
+     * a label or ends within it, and adding a node for the rest of the word if no
+     * child starts with its next letter.
+     *
+     * @return the nodes on the path of the word, the root first and the node of
+     * the word last
+     */
+    private List<Node> insertPath(String word) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+
+        int i = 0;
+        while (i < word.length()) {
+            int index = Arrays.binarySearch(node.keys, word.charAt(i));
+            if (index < 0) {
+                Node leaf = new Node(word.substring(i).toCharArray());
+                node.addChild(-index - 1, leaf);
+                nodes++;
+                path.add(leaf);
+                return path;
+            }
+
+            Node child = node.children[index];
+            int common = commonLength(child.label, word, i);
+            if (common < child.label.length) {
+                child = child.split(common);
+                node.children[index] = child;
+                nodes++;
+            }
+
+            node = child;
+            i += common;
+            path.add(node);
+        }
+
+        return path;
+    }
+
+    /**
+     * Sets the popularity of the last node of the path and brings the highest
+     * popularities of the nodes on the path up to date, last node first.
+     */
+    private static void setPop(List<Node> path, int popularity) {
+        path.get(path.size() - 1).pop = popularity;
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).refreshMaxPop();
+        }
+    }
+
+    /**
+     * Removes the given word from this dictionary. A node left without children
+     * and word is removed; a node left with a single child and no word is merged
+     * with that child.
+     *
+     * @param word the word to remove
+     * @return true if the word was in the dictionary; false otherwise
+     */
+    public boolean remove(String word) {
+        List<Node> path = followPath(word);
+        Node node = path == null || word.length() == 0 ? null : path.get(path.size() - 1);
+        if (node == null || node.pop == NO_WORD)
+            return false;
+
+        node.pop = NO_WORD;
+        if (node.keys.length == 0) {
+            path.remove(path.size() - 1);
+            path.get(path.size() - 1).removeChild(node.label[0]);
+            nodes--;
+            // Its parent may be left with a single child and no word itself
+            node = path.get(path.size() - 1);
+        }
+        if (node != root && node.pop == NO_WORD && node.keys.length == 1) {
+            path.remove(path.size() - 1);
+            path.get(path.size() - 1).replaceChild(node.merge());
+            nodes--;
+        }
+
+        for (int i = path.size() - 1; i >= 0; i--) {
+            path.get(i).refreshMaxPop();
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether or not the specified word is in this dictionary.
+     *
+     * @param word the word whose presence will be checked
+     * @return true if the specified word is stored in this tree; false otherwise
+     */
+    public boolean contains(CharSequence word) {
+        List<Node> path = followPath(word);
+        return path != null && path.get(path.size() - 1).pop != NO_WORD;
+    }
+
+    /**
+     * Returns the popularity of the given word.
+     * If the word is not there, returns -1.
+     *
+     * @param word the word whose popularity is returned
+     */
+    public int getPop(CharSequence word) {
+        List<Node> path = followPath(word);
+        return path == null || path.get(path.size() - 1).pop == NO_WORD ? -1 : path.get(path.size() - 1).pop;
+    }
+
+    /**
+     * @return the nodes from the root to the node ending exactly at the given
+     * letters, or null if the letters leave the tree or end within a label
+     */
+    private List<Node> followPath(CharSequence word) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        path.add(node);
+
+        int i = 0;
+        while (i < word.length()) {
+            int index = Arrays.binarySearch(node.keys, word.charAt(i));
+            if (index < 0)
+                return null;
+            node = node.children[index];
+            if (commonLength(node.label, word, i) < node.label.length)
+                return null;
+            i += node.label.length;
+            path.add(node);
+        }
+
+        return path;
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the specified prefix, the
+     * prefix itself first if it is a word, like {@link DictionaryTree#predict(String, int)}.
+     * The subtree is searched best first using the highest popularity of every
+     * subtree, so only the nodes which can still hold one of the n words are visited.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        List<String> predictedList = new ArrayList<>();
+        // Like in the tree, the empty prefix has no completions, and it is never a word
+        if (prefix.length() == 0 || n <= 0)
+            return predictedList;
+
+        // Finds the node whose label holds the last letter of the prefix; all of its
+        // words start with the prefix
+        Node node = root;
+        int i = 0;
+        while (i < prefix.length()) {
+            int index = Arrays.binarySearch(node.keys, prefix.charAt(i));
+            if (index < 0)
+                return predictedList;
+            node = node.children[index];
+            int common = commonLength(node.label, prefix, i);
+            if (common < node.label.length && i + common < prefix.length())
+                return predictedList;
+            i += node.label.length;
+        }
+        // The letters of the label after the end of the prefix
+        String word = prefix + new String(node.label, node.label.length - (i - prefix.length()), i - prefix.length());
+
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>();
+        if (word.length() == prefix.length()) {
+            if (node.pop != NO_WORD)
+                predictedList.add(prefix);
+            node.addChildren(candidates, word);
+        } else {
+            candidates.add(new Candidate(node.maxPop, word, node, true));
+        }
+
+        while (!candidates.isEmpty() && predictedList.size() < n) {
+            Candidate candidate = candidates.poll();
+
+            if (!candidate.subtree) {
+                predictedList.add(candidate.word);
+                continue;
+            }
+
+            if (candidate.node.pop != NO_WORD)
+                candidates.add(new Candidate(candidate.node.pop, candidate.word, candidate.node, false));
+            candidate.node.addChildren(candidates, candidate.word);
+        }
+
+        return predictedList;
+    }
+
+    /**
+     * @return all words stored in this tree as a list, in alphabetical order
+     */
+    public List<String> allWords() {
+        List<String> listOfWords = new ArrayList<>();
+        addWords(root, new StringBuilder(), listOfWords);
+        return listOfWords;
+    }
+
+    private static void addWords(Node node, StringBuilder word, List<String> listOfWords) {
+        for (Node child : node.children) {
+            word.append(child.label);
+            if (child.pop != NO_WORD)
+                listOfWords.add(word.toString());
+            addWords(child, word, listOfWords);
+            word.setLength(word.length() - child.label.length);
+        }
+    }
+
+    /**
+     * @return the number of nodes in this tree, fewer than a DictionaryTree of the
+     * same words has
+     */
+    public int size() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of leaves in this tree, the same as in a DictionaryTree
+     * of the same words
+     */
+    public int numLeaves() {
+        return numLeaves(root);
+    }
+
+    private static int numLeaves(Node node) {
+        int leaves = node.children.length == 0 ? 1 : 0;
+        for (Node child : node.children) {
+            leaves += numLeaves(child);
+        }
+        return leaves;
+    }
+
+    /**
+     * @return the maximum number of children held by any node in this tree, the
+     * same as in a DictionaryTree of the same words
+     */
+    public int maximumBranching() {
+        return maximumBranching(root);
+    }
+
+    private static int maximumBranching(Node node) {
+        int maximum = node.children.length;
+        for (Node child : node.children) {
+            maximum = Math.max(maximum, maximumBranching(child));
+        }
+        return maximum;
+    }
+
+    /**
+     * @return the height of this tree in letters, i.e. the length of the longest
+     * word, the same as the height of a DictionaryTree of the same words
+     */
+    public int height() {
+        return height(root);
+    }
+
+    private static int height(Node node) {
+        int height = 0;
+        for (Node child : node.children) {
+            height = Math.max(height, child.label.length + height(child));
+        }
+        return height;
+    }
+
+    /**
+     * @return the number of letters at the start of the label which are also the
+     * letters of the word from the given index
+     */
+    private static int commonLength(char[] label, CharSequence word, int from) {
+        int common = 0;
+        while (common < label.length && from + common < word.length() && label[common] == word.charAt(from + common))
+            common++;
+        return common;
+    }
+
+    private static final class Node {
+
+        // The letters leading to this node from its parent, never empty but for the root
+        private char[] label;
+        // The first letters of the children's labels in ascending order and the children at the same indexes
+        private char[] keys = NO_LETTERS;
+        private Node[] children = NO_CHILDREN;
+        private int pop = NO_WORD;
+        // The highest popularity of the words in this subtree, NO_WORD if there are none
+        private int maxPop = NO_WORD;
+
+        Node(char[] label) {
+            this.label = label;
+        }
+
+        void addChild(int index, Node child) {
+            keys = insert(keys, index, child.label[0]);
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(children, 0, newChildren, 0, index);
+            newChildren[index] = child;
+            System.arraycopy(children, index, newChildren, index + 1, children.length - index);
+            children = newChildren;
+        }
+
+        void removeChild(char letter) {
+            int index = Arrays.binarySearch(keys, letter);
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, index);
+            System.arraycopy(keys, index + 1, newKeys, index, keys.length - index - 1);
+            System.arraycopy(children, 0, newChildren, 0, index);
+            System.arraycopy(children, index + 1, newChildren, index, children.length - index - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        /**
+         * Replaces the child starting with the same letter as the given node by it.
+         */
+        void replaceChild(Node child) {
+            children[Arrays.binarySearch(keys, child.label[0])] = child;
+        }
+
+        /**
+         * Splits this node after the given number of letters of its label.
+         *
+         * @return the new node holding the first letters, whose only child is this
+         * node with the rest of its label
+         */
+        Node split(int length) {
+            Node top = new Node(Arrays.copyOf(label, length));
+            label = Arrays.copyOfRange(label, length, label.length);
+            top.keys = new char[]{label[0]};
+            top.children = new Node[]{this};
+            top.maxPop = maxPop;
+            return top;
+        }
+
+        /**
+         * Merges this node, which has one child and no word, with its child.
+         *
+         * @return the child, whose label now starts with the letters of this node
+         */
+        Node merge() {
+            Node child = children[0];
+            char[] merged = Arrays.copyOf(label, label.length + child.label.length);
+            System.arraycopy(child.label, 0, merged, label.length, child.label.length);
+            child.label = merged;
+            return child;
+        }
+
+        void refreshMaxPop() {
+            maxPop = pop;
+            for (Node child : children) {
+                maxPop = Math.max(maxPop, child.maxPop);
+            }
+        }
+
+        void addChildren(PriorityQueue<Candidate> candidates, String word) {
+            for (Node child : children) {
+                candidates.add(new Candidate(child.maxPop, word + new String(child.label), child, true));
+            }
+        }
+
+        private static char[] insert(char[] letters, int index, char letter) {
+            char[] inserted = new char[letters.length + 1];
+            System.arraycopy(letters, 0, inserted, 0, index);
+            inserted[index] = letter;
+            System.arraycopy(letters, index, inserted, index + 1, letters.length - index);
+            return inserted;
+        }
+    }
+
+    /**
+     * A word, or a subtree ranked by the best word it may hold. Candidates come
+     * out most popular first, then alphabetically. No word of a subtree comes
+     * alphabetically before the letters leading to it, so a subtree is taken
+     * apart before any word which one of its words could precede.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final int popularity;
+        private final String word;
+        private final Node node;
+        private final boolean subtree;
+
+        Candidate(int popularity, String word, Node node, boolean subtree) {
+            this.popularity = popularity;
+            this.word = word;
+            this.node = node;
+            this.subtree = subtree;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (popularity != other.popularity)
+                return Integer.compare(other.popularity, popularity);
+            int byWord = word.compareTo(other.word);
+            if (byWord != 0)
+                return byWord;
+            return Boolean.compare(other.subtree, subtree);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package src.dictTree;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A dictionary split by ranges of words into several {@link DictionaryShard}s,
+ * e.g. one per process when the words do not fit into one heap.
+ *
+ * Shard i holds the words w with boundary i - 1 &lt;= w &lt; boundary i, so the
+ * words with a given prefix are kept by a run of neighbouring shards. Changes
+ * and lookups of a word go to the shard holding it. A prediction goes to every
+ * shard which may hold a word with the prefix, all at once, and the most popular
+ * of their words are merged into one list. Long prefixes usually fall into one
+ * shard, which answers them alone.
+ *
+ * Any number of threads can use the dictionary at once.
+ */
+public class ShardedDictionary implements Closeable {
+
+    // boundaries[i] is the first word of shard i + 1
+    private final String[] boundaries;
+    private final DictionaryShard[] shards;
+    private final ExecutorService scatter = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "shard-scatter");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param boundaries the first word of every shard but the first one, in
+     *                   ascending order
+     * @param shards     the shards, one more than there are boundaries
+     */
+    public ShardedDictionary(List<String> boundaries, List<? extends DictionaryShard> shards) {
+        if (shards.size() != boundaries.size() + 1)
+            throw new IllegalArgumentException(shards.size() + " shards need " + (shards.size() - 1)
+                    + " boundaries, not " + boundaries.size());
+        for (int i = 1; i < boundaries.size(); i++) {
+            if (boundaries.get(i - 1).compareTo(boundaries.get(i)) >= 0)
+                throw new IllegalArgumentException("Boundaries out of order: " + boundaries);
+        }
+
+        this.boundaries = boundaries.toArray(new String[0]);
+        this.shards = shards.toArray(new DictionaryShard[0]);
+    }
+
+    /**
+     * Picks boundaries which split the words of the given dictionary into the
+     * given number of ranges of about the same number of words. Every boundary is
+     * the shortest prefix of the first word of its range which still comes after
+     * the last word of the previous range.
+     *
+     * @param dictionary the words to split
+     * @param shards     the number of ranges
+     * @return the first word of every range but the first one
+     * @throws IllegalArgumentException if the dictionary has fewer words than
+     *                                  ranges, as no range can be empty
+     */
+    public static List<String> boundaries(DictionaryTree dictionary, int shards) {
+        if (shards < 1)
+            throw new IllegalArgumentException("shards must be positive: " + shards);
+
+        long words = dictionary.words().count();
+        if (words < shards)
+            throw new IllegalArgumentException(words + " words can not be split into " + shards + " shards");
+        List<String> boundaries = new ArrayList<>();
+        Iterator<String> iterator = dictionary.words().iterator();
+        String previous = null;
+        for (long i = 0; i < words; i++) {
+            String word = iterator.next();
+            // The index the next range starts at, rounded so the ranges differ by at most one word
+            if (previous != null && i == words * (boundaries.size() + 1) / shards) {
+                int length = 1;
+                while (word.substring(0, length).compareTo(previous) <= 0)
+                    length++;
+                boundaries.add(word.substring(0, length));
+            }
+            previous = word;
+        }
+        return boundaries;
+    }
+
+    /**
+     * @param word the word whose presence will be checked
+     * @return true if the word is stored in this dictionary; false otherwise
+     */
+    public boolean contains(String word) {
+        return shards[shardIndex(word)].contains(word);
+    }
+
+    /**
+     * Inserts the given word with the given popularity into the shard holding its
+     * range, overwriting the popularity if the word is already there.
+     *
+     * @param word       the word to insert
+     * @param popularity the popularity of the inserted word
+     */
+    public void insert(String word, int popularity) {
+        shards[shardIndex(word)].insert(word, popularity);
+    }
+
+    /**
+     * Predicts the (at most) n most popular words with the given prefix like
+     * {@link DictionaryTree#predict(String, int)}, asking every shard which may
+     * hold such a word in parallel.
+     *
+     * @param prefix the prefix of the words found
+     * @param n      the maximum number of words returned
+     * @return the (at most) n most popular words with the specified prefix
+     */
+    public List<String> predict(String prefix, int n) {
+        int first = shardIndex(prefix);
+        // Every word with the prefix comes after the prefix itself, so the following
+        // shards hold some of them only if their first word has the prefix too
+        int last = first;
+        while (last < boundaries.length && boundaries[last].startsWith(prefix))
+            last++;
+
+        if (first == last)
+            return shards[first].predict(prefix, n).getWords();
+
+        List<CompletableFuture<Prediction>> others = new ArrayList<>();
+        for (int i = first + 1; i <= last; i++) {
+            DictionaryShard shard = shards[i];
+            others.add(CompletableFuture.supplyAsync(() -> shard.predict(prefix, n), scatter));
+        }
+
+        List<Prediction> predictions = new ArrayList<>();
+        predictions.add(shards[first].predict(prefix, n));
+        try {
+            for (CompletableFuture<Prediction> other : others) {
+                predictions.add(other.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+        return merge(prefix, n, predictions);
+    }
+
+    /**
+     * Merges the predictions of different shards into the (at most) n best words:
+     * the prefix itself if one of them holds it, then the most popular words,
+     * equally popular ones alphabetically. Every prediction is in that order
+     * already, so the next word is always the best of their first unused words.
+     */
+    static List<String> merge(String prefix, int n, List<Prediction> predictions) {
+        List<String> merged = new ArrayList<>();
+        int[] next = new int[predictions.size()];
+
+        while (merged.size() < n) {
+            int best = -1;
+            for (int p = 0; p < next.length; p++) {
+                if (next[p] < predictions.get(p).getWords().size() && (best < 0 || isBefore(prefix,
+                        predictions.get(p), next[p], predictions.get(best), next[best])))
+                    best = p;
+            }
+            if (best < 0)
+                break;
+
+            merged.add(predictions.get(best).getWords().get(next[best]++));
+        }
+        return merged;
+    }
+
+    private static boolean isBefore(String prefix, Prediction prediction, int index, Prediction other,
+                                    int otherIndex) {
+        String word = prediction.getWords().get(index);
+        String otherWord = other.getWords().get(otherIndex);
+        if (word.equals(prefix) || otherWord.equals(prefix))
+            return word.equals(prefix);
+        return DictionaryTree.isBefore(word, prediction.getPopularity(index), otherWord,
+                other.getPopularity(otherIndex));
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int shardCount() {
+        return shards.length;
+    }
+
+    /**
+     * @param word a word
+     * @return the index of the shard whose range holds the given word
+     */
+    public int shardIndex(String word) {
+        int index = Arrays.binarySearch(boundaries, word);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Closes every shard.
+     */
+    @Override
+    public void close() throws IOException {
+        scatter.shutdown();
+        IOException failure = null;
+        for (DictionaryShard shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
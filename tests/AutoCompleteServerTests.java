@@ -0,0 +1,114 @@
+package tests;
+
+import org.junit.Test;
+import src.AutoCompleteServer;
+import src.dictTree.ConcurrentDictionaryTree;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class AutoCompleteServerTests {
+
+    private static ConcurrentDictionaryTree sampleDictionary() {
+        ConcurrentDictionaryTree dictionary = new ConcurrentDictionaryTree();
+        dictionary.insert("car", 3);
+        dictionary.insert("cart", 5);
+        dictionary.insert("cat", 4);
+        dictionary.insert("say \"hi\"", 1);
+        return dictionary;
+    }
+
+    @Test
+    public void pipelinedRequestsShouldBeAnsweredInOrder() throws IOException {
+        try (AutoCompleteServer server = new AutoCompleteServer(sampleDictionary(), InetAddress.getLoopbackAddress(), 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("PREDICT 5 ca\nPREDICT 1 car\nCONTAINS cat\nCONTAINS ca\nPREDICT 5 say\nPREDICT x ca\nHELLO\n");
+            out.flush();
+
+            assertEquals("{\"prefix\":\"ca\",\"words\":[\"cart\",\"cat\",\"car\"]}", in.readLine());
+            assertEquals("{\"prefix\":\"car\",\"words\":[\"car\"]}", in.readLine());
+            assertEquals("{\"word\":\"cat\",\"contains\":true}", in.readLine());
+            assertEquals("{\"word\":\"ca\",\"contains\":false}", in.readLine());
+            assertEquals("{\"prefix\":\"say\",\"words\":[\"say \\\"hi\\\"\"]}", in.readLine());
+            assertEquals("{\"error\":\"not a number: x\"}", in.readLine());
+            assertEquals("{\"error\":\"unknown request: HELLO\"}", in.readLine());
+        }
+    }
+
+    @Test
+    public void badRequestsShouldBeAnsweredWithoutDroppingTheConnection() throws IOException {
+        try (AutoCompleteServer server = new AutoCompleteServer(sampleDictionary(), InetAddress.getLoopbackAddress(), 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("PREDICT -1 car\nSCORED -1 car\nPREDICT 1 car\n");
+            out.flush();
+
+            assertEquals("{\"error\":\"n must not be negative: -1\"}", in.readLine());
+            assertEquals("{\"error\":\"n must not be negative: -1\"}", in.readLine());
+            assertEquals("{\"prefix\":\"car\",\"words\":[\"car\"]}", in.readLine());
+        }
+    }
+
+    @Test
+    public void answersShouldNotWaitForTheRestOfARequestCutShort() throws IOException {
+        try (AutoCompleteServer server = new AutoCompleteServer(sampleDictionary(), InetAddress.getLoopbackAddress(), 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            socket.setSoTimeout(10_000);
+            out.write("PREDICT 1 car\nPRE");
+            out.flush();
+            assertEquals("{\"prefix\":\"car\",\"words\":[\"car\"]}", in.readLine());
+
+            out.write("DICT 1 cat\r\n");
+            out.flush();
+            assertEquals("{\"prefix\":\"cat\",\"words\":[\"cat\"]}", in.readLine());
+        }
+    }
+
+    @Test
+    public void connectionsShouldSeeChangesToTheDictionary() throws IOException {
+        ConcurrentDictionaryTree dictionary = sampleDictionary();
+        try (AutoCompleteServer server = new AutoCompleteServer(dictionary, InetAddress.getLoopbackAddress(), 0);
+             Socket first = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             Socket second = new Socket(InetAddress.getLoopbackAddress(), server.port())) {
+            dictionary.insert("cab", 9);
+
+            for (Socket socket : new Socket[]{first, second}) {
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                out.write("PREDICT 1 ca\n");
+                out.flush();
+                assertEquals("{\"prefix\":\"ca\",\"words\":[\"cab\"]}", in.readLine());
+            }
+        }
+    }
+
+    @Test
+    public void shardRequestsShouldScoreAndInsert() throws IOException {
+        ConcurrentDictionaryTree dictionary = sampleDictionary();
+        try (AutoCompleteServer server = new AutoCompleteServer(dictionary, InetAddress.getLoopbackAddress(), 0);
+             Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.port());
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8)) {
+            out.write("SCORED 2 ca\nINSERT 8 cab\nSCORED 5 cab\nINSERT x cab\nSCORED 5 x\nINSERT -2147483648 abc\n");
+            out.flush();
+
+            assertEquals("{\"prefix\":\"ca\",\"words\":[\"cart\",\"cat\"],\"pops\":[5,4]}", in.readLine());
+            assertEquals("{\"word\":\"cab\",\"inserted\":true}", in.readLine());
+            assertEquals("{\"prefix\":\"cab\",\"words\":[\"cab\"],\"pops\":[8]}", in.readLine());
+            assertEquals("{\"error\":\"not a number: x\"}", in.readLine());
+            assertEquals("{\"prefix\":\"x\",\"words\":[],\"pops\":[]}", in.readLine());
+            assertEquals("{\"error\":\"popularity out of range: -2147483648\"}", in.readLine());
+            assertFalse(dictionary.contains("abc"));
+            assertEquals(8, dictionary.getPop("cab"));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package tests;
+
+import org.junit.Test;
+import src.AutoCompleteServer;
+import src.RemoteShard;
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.Prediction;
+import src.dictTree.ShardedDictionary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class RemoteShardTests {
+
+    @Test
+    public void itShouldPredictWithPopularities() throws IOException {
+        ConcurrentDictionaryTree dictionary = new ConcurrentDictionaryTree();
+        dictionary.insert("car", 3);
+        dictionary.insert("cart", 5);
+        dictionary.insert("say \"hi\"\\", -2);
+
+        try (AutoCompleteServer server = new AutoCompleteServer(dictionary, InetAddress.getLoopbackAddress(), 0);
+             RemoteShard unit = new RemoteShard(InetAddress.getLoopbackAddress(), server.port())) {
+            Prediction prediction = unit.predict("car", 5);
+            assertEquals("[car, cart]", prediction.getWords().toString());
+            assertEquals(3, prediction.getPopularity(0));
+            assertEquals(5, prediction.getPopularity(1));
+
+            prediction = unit.predict("say", 5);
+            assertEquals("[say \"hi\"\\]", prediction.getWords().toString());
+            assertEquals(-2, prediction.getPopularity(0));
+            assertTrue(unit.predict("x", 5).getWords().isEmpty());
+
+            unit.insert("cab", 9);
+            assertTrue(unit.contains("cab"));
+            assertFalse(unit.contains("ca"));
+            assertEquals(9, dictionary.getPop("cab"));
+        }
+    }
+
+    @Test
+    public void shardsInOtherServersShouldBeMerged() throws IOException {
+        ConcurrentDictionaryTree first = new ConcurrentDictionaryTree();
+        ConcurrentDictionaryTree second = new ConcurrentDictionaryTree();
+        try (AutoCompleteServer firstServer = new AutoCompleteServer(first, InetAddress.getLoopbackAddress(), 0);
+             AutoCompleteServer secondServer = new AutoCompleteServer(second, InetAddress.getLoopbackAddress(), 0);
+             ShardedDictionary unit = new ShardedDictionary(Arrays.asList("cat"), Arrays.asList(
+                     new RemoteShard(InetAddress.getLoopbackAddress(), firstServer.port()),
+                     new RemoteShard(InetAddress.getLoopbackAddress(), secondServer.port())))) {
+            unit.insert("car", 3);
+            unit.insert("cart", 5);
+            unit.insert("cat", 4);
+            unit.insert("cow", 9);
+
+            assertEquals("[car, cart]", first.allWords().toString());
+            assertEquals("[cat, cow]", second.allWords().toString());
+            assertEquals("[cow, cart, cat]", unit.predict("c", 3).toString());
+            assertTrue(unit.contains("cow"));
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void aClosedServerShouldFailRequests() throws IOException {
+        AutoCompleteServer server = new AutoCompleteServer(new ConcurrentDictionaryTree(),
+                InetAddress.getLoopbackAddress(), 0);
+        try (RemoteShard unit = new RemoteShard(InetAddress.getLoopbackAddress(), server.port())) {
+            server.close();
+            unit.predict("a", 5);
+        }
+    }
+}
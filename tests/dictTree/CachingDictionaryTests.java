@@ -0,0 +1,136 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.CachingDictionary;
+import src.dictTree.ConcurrentDictionaryTree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CachingDictionaryTests {
+
+    private static CachingDictionary sampleDictionary(int capacity) {
+        ConcurrentDictionaryTree dictionary = new ConcurrentDictionaryTree();
+        dictionary.insert("car", 3);
+        dictionary.insert("cart", 5);
+        dictionary.insert("cat", 4);
+        dictionary.insert("dog", 2);
+        return new CachingDictionary(dictionary, capacity);
+    }
+
+    @Test
+    public void repeatedPredictionsShouldHitTheCache() {
+        CachingDictionary unit = sampleDictionary(10);
+
+        assertEquals("[cart, cat, car]", unit.predict("ca", 5).toString());
+        assertEquals("[cart, cat, car]", unit.predict("ca", 5).toString());
+        assertEquals("[cart, cat]", unit.predict("ca", 2).toString());
+
+        assertEquals(1, unit.hits());
+        assertEquals(2, unit.misses());
+        assertEquals(2, unit.size());
+    }
+
+    @Test
+    public void changesShouldOnlyDropThePredictionsOfTheirPrefixes() {
+        CachingDictionary unit = sampleDictionary(10);
+        unit.predict("c", 5);
+        unit.predict("ca", 2);
+        unit.predict("car", 5);
+        unit.predict("d", 5);
+
+        unit.insert("cab", 9);
+
+        assertEquals(2, unit.invalidations());
+        assertEquals(2, unit.size());
+        assertEquals("[cab, cart]", unit.predict("ca", 2).toString());
+        assertEquals("[car, cart]", unit.predict("car", 5).toString());
+        assertEquals("[dog]", unit.predict("d", 5).toString());
+        assertEquals(2, unit.hits());
+    }
+
+    @Test
+    public void setPopAndRemoveShouldDropStalePredictions() {
+        CachingDictionary unit = sampleDictionary(10);
+        unit.predict("ca", 5);
+
+        assertTrue(unit.setPop("car", 7));
+        assertEquals("[car, cart, cat]", unit.predict("ca", 5).toString());
+        assertTrue(unit.remove("cart"));
+        assertEquals("[car, cat]", unit.predict("ca", 5).toString());
+        assertFalse(unit.remove("cow"));
+        assertEquals(2, unit.invalidations());
+    }
+
+    @Test
+    public void theLeastRecentlyUsedPredictionShouldBeEvicted() {
+        CachingDictionary unit = sampleDictionary(2);
+        unit.predict("c", 5);
+        unit.predict("d", 5);
+        unit.predict("c", 5);
+        unit.predict("ca", 5);
+
+        assertEquals(1, unit.evictions());
+        assertEquals(2, unit.size());
+        unit.predict("c", 5);
+        assertEquals(2, unit.hits());
+
+        // The evicted prediction is no longer indexed, so nothing is invalidated
+        unit.insert("dot", 1);
+        assertEquals(0, unit.invalidations());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void cachedPredictionsShouldNotBeModifiable() {
+        sampleDictionary(10).predict("c", 5).clear();
+    }
+
+    @Test
+    public void predictionsShouldBeFreshAfterConcurrentChanges() throws InterruptedException {
+        CachingDictionary unit = sampleDictionary(64);
+        ConcurrentDictionaryTree expected = new ConcurrentDictionaryTree();
+        String[] prefixes = {"", "c", "ca", "car", "cat", "d", "do", "w", "wo"};
+
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 5000; i++) {
+                unit.insert("wo" + (i % 50), i);
+                if (i % 3 == 0)
+                    unit.remove("wo" + ((i + 25) % 50));
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    unit.predict(prefixes[i % prefixes.length], 1 + i % 3);
+                }
+            }));
+        }
+        writer.start();
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        // Replays the changes without a cache
+        expected.insert("car", 3);
+        expected.insert("cart", 5);
+        expected.insert("cat", 4);
+        expected.insert("dog", 2);
+        for (int i = 0; i < 5000; i++) {
+            expected.insert("wo" + (i % 50), i);
+            if (i % 3 == 0)
+                expected.remove("wo" + ((i + 25) % 50));
+        }
+        for (String prefix : prefixes) {
+            for (int n = 1; n <= 3; n++) {
+                assertEquals(expected.predict(prefix, n), unit.predict(prefix, n));
+            }
+        }
+    }
+}
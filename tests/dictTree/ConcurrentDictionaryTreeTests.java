@@ -0,0 +1,247 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.DictionaryTree;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentDictionaryTreeTests {
+
+    private static String word(char letter, int number) {
+        return letter + String.format("%05d", number);
+    }
+
+    @Test
+    public void itShouldBehaveLikeADictionaryTree() {
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree();
+        unit.insert("word", 1);
+        unit.insert("wordA", 6);
+        unit.insert("wordB", 3);
+        unit.insert("other");
+
+        assertTrue(unit.contains("wordA"));
+        assertFalse(unit.contains("wor"));
+        assertEquals("[word, wordA, wordB]", unit.predict("word", 5).toString());
+        assertEquals("[other, word, wordA, wordB]", unit.allWords().toString());
+    }
+
+    @Test
+    public void setPopShouldOnlyChangeExistingWords() {
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree();
+        unit.insert("ta", 1);
+        unit.insert("tb", 2);
+
+        assertTrue(unit.setPop("ta", 3));
+        assertFalse(unit.setPop("tc", 4));
+        assertFalse(unit.contains("tc"));
+        assertEquals("[ta, tb]", unit.predict("t", 5).toString());
+    }
+
+    @Test
+    public void removeShouldReportWhetherTheWordWasThere() {
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree();
+        unit.insert("word");
+        unit.insert("wordy");
+
+        assertTrue(unit.remove("word"));
+        assertFalse(unit.remove("word"));
+        assertFalse(unit.remove("wor"));
+        assertTrue(unit.contains("wordy"));
+        assertEquals(6, unit.size());
+    }
+
+    @Test
+    public void itShouldKeepAGivenTree() {
+        DictionaryTree tree = new DictionaryTree(1);
+        tree.insert("ta", 1);
+        tree.insert("tb", 2);
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree(tree);
+        unit.insert("tc", 3);
+
+        assertEquals("[tc, tb, ta]", unit.predict("t", 3).toString());
+        assertFalse(tree.contains("tc"));
+    }
+
+    @Test
+    public void addPopsShouldMatchInsertingEveryWord() {
+        DictionaryTree expected = new DictionaryTree(3);
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree(new DictionaryTree(3));
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            Map<String, Integer> amounts = new HashMap<>();
+            for (int i = 0; i < 30; i++) {
+                String word = Integer.toString(random.nextInt(400), 5);
+                amounts.merge(word, random.nextInt(10) - 2, Integer::sum);
+            }
+
+            for (Map.Entry<String, Integer> amount : amounts.entrySet()) {
+                int old = expected.contains(amount.getKey()) ? expected.getPop(amount.getKey()) : 0;
+                expected.insert(amount.getKey(), old + amount.getValue());
+            }
+            unit.addPops(amounts);
+        }
+
+        assertEquals(expected.allWords(), unit.allWords());
+        for (String word : expected.allWords()) {
+            assertEquals(expected.getPop(word), unit.getPop(word));
+            for (int length = 1; length <= word.length(); length++) {
+                assertEquals(expected.predict(word.substring(0, length), 3), unit.predict(word.substring(0, length), 3));
+            }
+        }
+    }
+
+    @Test
+    public void addPopsShouldLeaveTheGivenTreeAlone() {
+        DictionaryTree tree = new DictionaryTree(1);
+        tree.insert("ta", 1);
+        tree.insert("tb", 2);
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree(tree);
+        Map<String, Integer> amounts = new HashMap<>();
+        amounts.put("ta", 5);
+        amounts.put("tc", 1);
+
+        unit.addPops(amounts);
+
+        assertEquals("[ta, tb, tc]", unit.predict("t", 3).toString());
+        assertEquals("[tb, ta]", tree.predict("t", 3).toString());
+        assertEquals("[tb]", tree.predict("t", 1).toString());
+    }
+
+    @Test
+    public void addPopsShouldNotOverflow() {
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree();
+        unit.insert("big", Integer.MAX_VALUE - 1);
+        unit.insert("small", Integer.MIN_VALUE + 2);
+        Map<String, Integer> amounts = new HashMap<>();
+        amounts.put("big", 5);
+        amounts.put("small", -5);
+        amounts.put("", 3);
+
+        unit.addPops(amounts);
+
+        assertEquals(Integer.MAX_VALUE, unit.getPop("big"));
+        assertEquals(Integer.MIN_VALUE + 1, unit.getPop("small"));
+        assertFalse(unit.contains(""));
+    }
+
+    @Test
+    public void decayPopsShouldScalePositivePopularities() {
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree();
+        unit.insert("ta", 10);
+        unit.insert("tb", 7);
+        unit.insert("tc");
+
+        unit.decayPops(0.5);
+
+        assertEquals(5, unit.getPop("ta"));
+        assertEquals(3, unit.getPop("tb"));
+        assertEquals(-1, unit.getPop("tc"));
+        assertEquals("[ta, tb, tc]", unit.predict("t", 3).toString());
+    }
+
+    @Test
+    public void readersShouldOnlySeeWholeChanges() throws InterruptedException {
+        ConcurrentDictionaryTree unit = new ConcurrentDictionaryTree(new DictionaryTree(3));
+        int changes = 20000;
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> writers = new ArrayList<>();
+        List<Thread> readers = new ArrayList<>();
+
+        // Words starting with 'a' are only added, each more popular than the last
+        writers.add(new Thread(() -> {
+            for (int i = 0; i < changes; i++) {
+                unit.insert(word('a', i), i);
+            }
+        }));
+        // Each word starting with 'b' replaces the one before it
+        writers.add(new Thread(() -> {
+            for (int i = 0; i < changes; i++) {
+                unit.insert(word('b', i), i);
+                if (i > 0)
+                    unit.remove(word('b', i - 1));
+            }
+        }));
+        // Words starting with 'c' change popularity, but there are always 4 of them
+        for (int i = 0; i < 4; i++) {
+            unit.insert(word('c', i), 0);
+        }
+        writers.add(new Thread(() -> {
+            for (int i = 0; i < changes; i++) {
+                unit.setPop(word('c', i % 4), i);
+            }
+        }));
+
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                int lastA = -1;
+                int lastB = -1;
+                try {
+                    while (writing.get()) {
+                        // The 3 most popular words must be the 3 newest ones, and never older
+                        // ones than seen before
+                        List<String> a = unit.predict("a", 3);
+                        if (!a.isEmpty()) {
+                            int newest = Integer.parseInt(a.get(0).substring(1));
+                            for (int i = 0; i < a.size(); i++) {
+                                assertEquals(word('a', newest - i), a.get(i));
+                            }
+                            assertEquals(Math.min(newest + 1, 3), a.size());
+                            assertTrue(newest >= lastA);
+                            assertTrue(unit.contains(word('a', newest)));
+                            lastA = newest;
+                        }
+
+                        // Either the newest word alone, or just before the one before it is removed
+                        List<String> b = unit.predict("b", 10);
+                        if (!b.isEmpty()) {
+                            int newest = Integer.parseInt(b.get(0).substring(1));
+                            assertTrue(b.size() <= 2);
+                            if (b.size() == 2)
+                                assertEquals(word('b', newest - 1), b.get(1));
+                            assertTrue(newest >= lastB);
+                            lastB = newest;
+                        }
+
+                        assertEquals(4, unit.predict("c", 10).size());
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            }));
+        }
+
+        for (Thread reader : readers) {
+            reader.start();
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        writing.set(false);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        if (failure.get() != null)
+            throw new AssertionError(failure.get());
+        assertEquals(changes + 1 + 4, unit.allWords().size());
+        assertEquals("[" + word('a', changes - 1) + ", " + word('a', changes - 2) + "]",
+                unit.predict("a", 2).toString());
+        assertEquals("[" + word('b', changes - 1) + "]", unit.predict("b", 10).toString());
+        assertEquals("[" + word('c', 3) + ", " + word('c', 2) + ", " + word('c', 1) + ", " + word('c', 0) + "]",
+                unit.predict("c", 10).toString());
+    }
+
+}
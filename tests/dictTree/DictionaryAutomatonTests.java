@@ -0,0 +1,71 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.DictionaryAutomaton;
+import src.dictTree.DictionaryTree;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DictionaryAutomatonTests {
+
+    private static final List<String> WORDS = Arrays.asList("walk", "walked", "walking", "talk", "talked",
+            "talking", "talks", "walks", "talk", "", "tall", "wall");
+
+    private static DictionaryTree treeOf(List<String> words) {
+        DictionaryTree tree = new DictionaryTree();
+        for (int i = 0; i < words.size(); i++) {
+            tree.insert(words.get(i), (i * 7) % 5);
+        }
+        return tree;
+    }
+
+    @Test
+    public void sharedEndingsShouldShareStates() {
+        DictionaryAutomaton unit = DictionaryAutomaton.build(WORDS, index -> (index * 7) % 5);
+
+        assertEquals(10, unit.wordCount());
+        assertTrue(unit.stateCount() < treeOf(WORDS).size());
+    }
+
+    @Test
+    public void itShouldContainTheInsertedWords() {
+        DictionaryAutomaton unit = DictionaryAutomaton.build(WORDS, index -> 0);
+
+        assertTrue(unit.contains("walking"));
+        assertTrue(unit.contains("tall"));
+        assertFalse(unit.contains("walkings"));
+        assertFalse(unit.contains("wal"));
+        assertFalse(unit.contains(""));
+    }
+
+    @Test
+    public void allWordsShouldMatchTheTree() {
+        DictionaryAutomaton unit = DictionaryAutomaton.build(WORDS, index -> 0);
+        assertEquals(treeOf(WORDS).allWords(), unit.allWords());
+    }
+
+    @Test
+    public void predictShouldMatchTheTree() {
+        DictionaryTree tree = treeOf(WORDS);
+        DictionaryAutomaton unit = DictionaryAutomaton.build(WORDS, index -> (index * 7) % 5);
+
+        for (String prefix : new String[]{"", "t", "ta", "tal", "talk", "talke", "w", "walk", "x"}) {
+            for (int n = 0; n <= 11; n++) {
+                assertEquals(tree.predict(prefix, n), unit.predict(prefix, n));
+            }
+        }
+    }
+
+    @Test
+    public void anEmptyAutomatonShouldHaveOnlyTheStartState() {
+        DictionaryAutomaton unit = DictionaryAutomaton.build(Arrays.asList(), index -> 0);
+
+        assertEquals(1, unit.stateCount());
+        assertTrue(unit.allWords().isEmpty());
+        assertTrue(unit.predict("a", 3).isEmpty());
+    }
+
+}
@@ -1,8 +1,22 @@
 package tests.dictTree;
 
 import org.junit.Test;
+import src.dictTree.DictionaryMetrics;
 import src.dictTree.DictionaryTree;
 
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
 import static org.junit.Assert.*;
 
 public class DictionaryTreeTests {
@@ -210,6 +224,40 @@ public class DictionaryTreeTests {
         assertEquals(3, unit.maximumBranching());
     }
 
+    @Test
+    public void maximumBranchingShouldLookAtEveryChild() {
+        DictionaryTree unit = new DictionaryTree();
+        for (String word : new String[]{"ab", "ac", "ad", "ae", "af", "b", "c"}) {
+            unit.insert(word);
+        }
+
+        assertEquals(5, unit.maximumBranching());
+        assertEquals(0, new DictionaryTree().maximumBranching());
+    }
+
+    @Test
+    public void statisticsOfLargeTreesShouldMatchSmallOnes() {
+        // Large enough for the folds to fork, built from copies of a small tree
+        String[] words = {"word", "world", "wordy", "sword", "swords", "wo"};
+        DictionaryTree small = new DictionaryTree();
+        DictionaryTree large = new DictionaryTree();
+        for (String word : words) {
+            small.insert(word);
+        }
+        for (int copy = 0; copy < 2000; copy++) {
+            for (String word : words) {
+                large.insert(Integer.toString(copy, 36) + "-" + word);
+            }
+        }
+
+        assertEquals(small.numLeaves() * 2000, large.numLeaves());
+        assertEquals(small.height() + "1jj-".length(), large.height());
+        // After "1" come "-" and the 36 digits of "10" to "1z"
+        assertEquals(37, large.maximumBranching());
+        assertEquals(large.allWords().size(), 2000 * words.length);
+        assertTrue(large.size() > 8192);
+    }
+
     @Test
     public void allWords() {
         DictionaryTree unit = new DictionaryTree();
@@ -221,6 +269,91 @@ public class DictionaryTreeTests {
         assertEquals("[word, wordA, wordB, wordCD]", unit.allWords().toString());
     }
 
+    @Test
+    public void wordsShouldStreamInRangesAndWithPrefixes() {
+        DictionaryTree unit = new DictionaryTree();
+        for (String word : new String[]{"word", "wordA", "wordB", "wordCD", "work", "apple", "w"}) {
+            unit.insert(word);
+        }
+
+        assertEquals("[apple, w, word, wordA, wordB, wordCD, work]", unit.words().collect(Collectors.toList()).toString());
+        assertEquals("[word, wordA, wordB, wordCD]", unit.wordsWithPrefix("word").collect(Collectors.toList()).toString());
+        assertEquals("[wordA, wordB]", unit.wordsInRange("wordA", "wordC").collect(Collectors.toList()).toString());
+        assertEquals("[wordB, wordCD, work]", unit.wordsInRange("wordAA", null).collect(Collectors.toList()).toString());
+        assertEquals("[apple, w]", unit.wordsInRange("", "wo").collect(Collectors.toList()).toString());
+        assertEquals(0, unit.wordsWithPrefix("x").count());
+        assertEquals(0, unit.wordsInRange("work", "word").count());
+        assertEquals(0, new DictionaryTree().words().count());
+    }
+
+    @Test
+    public void wordsShouldMatchASortedSet() {
+        Random random = new Random(19);
+        TreeSet<String> expected = new TreeSet<>();
+        DictionaryTree unit = new DictionaryTree();
+        for (int i = 0; i < 3000; i++) {
+            String word = Integer.toString(random.nextInt(100000), 4 + random.nextInt(4));
+            expected.add(word);
+            unit.insert(word);
+        }
+
+        assertEquals(new ArrayList<>(expected), unit.words().collect(Collectors.toList()));
+        for (int i = 0; i < 200; i++) {
+            String from = Integer.toString(random.nextInt(100000), 4 + random.nextInt(4));
+            String to = Integer.toString(random.nextInt(100000), 4 + random.nextInt(4));
+            if (from.compareTo(to) > 0) {
+                String swap = from;
+                from = to;
+                to = swap;
+            }
+            String prefix = from.substring(0, 1 + random.nextInt(from.length()));
+
+            assertEquals(new ArrayList<>(expected.subSet(from, to)),
+                    unit.wordsInRange(from, to).collect(Collectors.toList()));
+            assertEquals(new ArrayList<>(expected.tailSet(from)),
+                    unit.wordsInRange(from, null).collect(Collectors.toList()));
+            assertEquals(new ArrayList<>(expected.subSet(prefix, prefix + Character.MAX_VALUE)),
+                    unit.wordsWithPrefix(prefix).collect(Collectors.toList()));
+        }
+    }
+
+    @Test
+    public void parallelWordStreamsShouldKeepTheOrder() {
+        DictionaryTree unit = new DictionaryTree();
+        for (int i = 0; i < 20000; i++) {
+            unit.insert(Integer.toString(i * 7919 % 100000, 3));
+        }
+        List<String> expected = unit.words().collect(Collectors.toList());
+
+        assertEquals(20000, expected.size());
+        assertEquals(expected, unit.words().parallel().collect(Collectors.toList()));
+        assertEquals(expected.subList(100, 5000), unit.words().parallel().skip(100).limit(4900)
+                .collect(Collectors.toList()));
+
+        // Splitting the stream by hand visits every word exactly once, in order
+        Spliterator<String> second = unit.words().spliterator();
+        Spliterator<String> first = second.trySplit();
+        assertNotNull(first);
+        List<String> words = new ArrayList<>();
+        first.forEachRemaining(words::add);
+        int split = words.size();
+        second.forEachRemaining(words::add);
+        assertEquals(expected, words);
+        assertTrue(split > 0 && split < expected.size());
+    }
+
+    @Test
+    public void wordStreamsShouldStopEarly() {
+        DictionaryTree unit = new DictionaryTree();
+        for (int i = 0; i < 1000; i++) {
+            unit.insert("w" + i);
+        }
+
+        assertEquals("[w0, w1, w10]", unit.words().limit(3).collect(Collectors.toList()).toString());
+        assertEquals("w500", unit.wordsInRange("w5", null).skip(2).findFirst().orElse(null));
+        assertTrue(unit.wordsWithPrefix("w99").anyMatch(word -> word.equals("w99")));
+    }
+
     @Test
     public void allWords654() {
         DictionaryTree unit = new DictionaryTree();
@@ -251,4 +384,314 @@ public class DictionaryTreeTests {
         assertTrue(unit.contains("wordasdf"));
     }
 
+    @Test
+    public void predictShouldReturnThePrefixFirstThenTheMostPopularWords() {
+        DictionaryTree unit = new DictionaryTree();
+        unit.insert("ab", 5);
+        unit.insert("abc", 3);
+        unit.insert("abd", 7);
+        unit.insert("b", 9);
+
+        assertEquals("[ab, abd, abc]", unit.predict("ab", 5).toString());
+        assertEquals("[abd, ab]", unit.predict("a", 2).toString());
+    }
+
+    @Test
+    public void cachedPredictionShouldMatchTheFullTraversal() {
+        DictionaryTree cached = new DictionaryTree(3);
+        DictionaryTree uncached = new DictionaryTree(0);
+        String[] words = {"car", "cart", "carton", "cat", "catalog", "cattle", "cab", "cabin", "dog"};
+        for (int i = 0; i < words.length; i++) {
+            cached.insert(words[i], i % 4);
+            uncached.insert(words[i], i % 4);
+        }
+
+        for (String prefix : new String[]{"c", "ca", "car", "cat", "cab", "d", "x"}) {
+            for (int n = 1; n <= 3; n++) {
+                assertEquals(uncached.predict(prefix, n), cached.predict(prefix, n));
+            }
+        }
+    }
+
+    @Test
+    public void predictionBeyondTheCacheSizeShouldTraverseTheSubtree() {
+        DictionaryTree unit = new DictionaryTree(2);
+        unit.insert("ta", 1);
+        unit.insert("tb", 4);
+        unit.insert("tc", 2);
+        unit.insert("td", 3);
+
+        assertEquals("[tb, td]", unit.predict("t", 2).toString());
+        assertEquals("[tb, td, tc, ta]", unit.predict("t", 10).toString());
+    }
+
+    @Test
+    public void cacheShouldFollowPopularityChanges() {
+        DictionaryTree unit = new DictionaryTree();
+        unit.insert("one", 1);
+        unit.insert("only", 2);
+        assertEquals("[only, one]", unit.predict("o", 2).toString());
+
+        unit.insert("one", 5);
+        assertEquals("[one, only]", unit.predict("o", 2).toString());
+    }
+
+    @Test
+    public void cacheShouldRefillAfterRemove() {
+        DictionaryTree unit = new DictionaryTree(1);
+        unit.insert("sea", 3);
+        unit.insert("see", 2);
+        unit.insert("seen", 1);
+        assertEquals("[sea]", unit.predict("s", 1).toString());
+
+        unit.remove("sea");
+        assertEquals("[see]", unit.predict("s", 1).toString());
+        unit.remove("see");
+        assertEquals("[seen]", unit.predict("s", 1).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCacheSizeShouldBeRejected() {
+        new DictionaryTree(-1);
+    }
+
+    @Test
+    public void wordsShouldBeKeptInAlphabeticalOrder() {
+        DictionaryTree unit = new DictionaryTree();
+        unit.insert("pear");
+        unit.insert("apple");
+        unit.insert("plum");
+        unit.insert("caf\u00e9");
+        unit.insert("cafe");
+        unit.insert("a's");
+
+        assertEquals("[a's, apple, cafe, caf\u00e9, pear, plum]", unit.allWords().toString());
+    }
+
+    @Test
+    public void removingAMiddleChildShouldKeepItsSiblings() {
+        DictionaryTree unit = new DictionaryTree();
+        unit.insert("ba", 1);
+        unit.insert("bb", 2);
+        unit.insert("bc", 3);
+
+        assertTrue(unit.remove("bb"));
+        assertEquals("[ba, bc]", unit.allWords().toString());
+        assertEquals(4, unit.size());
+        assertFalse(unit.contains("bb"));
+        assertEquals("[bc, ba]", unit.predict("b", 5).toString());
+    }
+
+    @Test
+    public void buildShouldMatchInsertingInOrder() {
+        List<String> words = new ArrayList<>(Arrays.asList("the", "of", "", "then", "the", "a"));
+        // Enough words for the build to split into subtasks
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 1 + random.nextInt(8); length > 0; length--) {
+                word.append((char) ('a' + random.nextInt(1 + random.nextInt(26))));
+            }
+            words.add(word.toString());
+        }
+
+        DictionaryTree expected = new DictionaryTree();
+        for (int i = 0; i < words.size(); i++) {
+            expected.insert(words.get(i), 100003 - i);
+        }
+        DictionaryTree unit = DictionaryTree.build(words, index -> 100003 - index);
+
+        assertEquals(expected.size(), unit.size());
+        assertEquals(expected.allWords(), unit.allWords());
+        assertFalse(unit.contains(""));
+        for (String prefix : new String[]{"t", "th", "the", "a", "ab", "abc", "z"}) {
+            assertEquals(expected.predict(prefix, 10), unit.predict(prefix, 10));
+        }
+    }
+
+    @Test
+    public void uncachedPredictionShouldBreakTiesAlphabetically() {
+        DictionaryTree unit = new DictionaryTree(0);
+        String[] words = {"bz", "ba", "b", "bzz", "bab", "c"};
+        for (String word : words) {
+            unit.insert(word, 4);
+        }
+
+        assertEquals("[b, ba, bab, bz, bzz]", unit.predict("b", 10).toString());
+        assertEquals("[b, ba]", unit.predict("b", 2).toString());
+    }
+
+    @Test
+    public void mostPopularWordOfAnEmptyTreeShouldHaveNoPopularity() {
+        DictionaryTree unit = new DictionaryTree();
+
+        assertEquals("_0", unit.mostPopularWord(unit));
+    }
+
+    @Test
+    public void buildShouldUseTheGivenCacheSize() {
+        List<String> words = Arrays.asList("ta", "tb", "tc", "td");
+        DictionaryTree unit = DictionaryTree.build(words, index -> index, 0, ForkJoinPool.commonPool());
+
+        assertEquals("[td, tc, tb, ta]", unit.predict("t", 10).toString());
+    }
+
+    @Test
+    public void predictAllShouldPredictEveryDistinctPrefix() {
+        DictionaryTree unit = new DictionaryTree(2);
+        String[] words = {"car", "cart", "carton", "cat", "catalog", "cattle", "cab", "cabin", "dog", "do"};
+        for (int i = 0; i < words.length; i++) {
+            unit.insert(words[i], i % 4);
+        }
+        List<String> prefixes = Arrays.asList("cat", "ca", "", "carto", "cart", "x", "ca", "cax", "d", "do", "caxy");
+
+        for (int n : new int[]{1, 2, 5}) {
+            Map<String, List<String>> predictions = unit.predictAll(prefixes, n);
+
+            assertEquals(10, predictions.size());
+            for (String prefix : prefixes) {
+                assertEquals(unit.predict(prefix, n), predictions.get(prefix));
+            }
+        }
+    }
+
+    @Test
+    public void predictAllShouldSplitLargeBatches() {
+        DictionaryTree unit = new DictionaryTree();
+        List<String> prefixes = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            String word = Integer.toString(i * 7919 % 10007, 36);
+            unit.insert(word, i);
+            prefixes.add(word.substring(0, 1 + i % word.length()));
+        }
+
+        Map<String, List<String>> predictions = unit.predictAll(prefixes, 3);
+
+        for (String prefix : prefixes) {
+            assertEquals(unit.predict(prefix, 3), predictions.get(prefix));
+        }
+    }
+
+    @Test
+    public void cursorShouldPredictLikeThePrefixTypedSoFar() {
+        DictionaryTree unit = new DictionaryTree(2);
+        String[] words = {"car", "cart", "carton", "cat", "catalog", "cattle", "cab", "cabin", "dog", "do"};
+        for (int i = 0; i < words.length; i++) {
+            unit.insert(words[i], i % 4);
+        }
+        DictionaryTree.Cursor cursor = unit.cursor();
+
+        // Types, corrects and retypes, leaving the tree and getting back into it
+        String keys = "carto<<<t<bix<<<<<dog<<<<xy<<ca";
+        for (char key : keys.toCharArray()) {
+            if (key == '<')
+                cursor.backspace();
+            else
+                cursor.type(key);
+
+            String prefix = cursor.prefix();
+            assertEquals(unit.contains(prefix), cursor.isWord());
+            for (int n = 1; n <= 3; n++) {
+                assertEquals(unit.predict(prefix, n), cursor.predict(n));
+            }
+        }
+        assertEquals("ca", cursor.prefix());
+
+        cursor.clear();
+        assertEquals("", cursor.prefix());
+        cursor.type("ca");
+        assertEquals(unit.predict("ca", 2), cursor.predict(2));
+    }
+
+    @Test
+    public void fuzzyPredictionShouldFindCompletionsOfMistypedPrefixes() {
+        DictionaryTree unit = new DictionaryTree();
+        unit.insert("program", 9);
+        unit.insert("progress", 7);
+        unit.insert("project", 8);
+        unit.insert("print", 5);
+        unit.insert("pragma", 3);
+
+        assertEquals("[]", unit.predict("prgo", 5).toString());
+        // "pro" is one deletion away, "pri" and "pra" two
+        assertEquals("[program, project, progress]", unit.predictFuzzy("prgo", 5, 1).toString());
+        assertEquals("[program, project, progress, print, pragma]", unit.predictFuzzy("prgo", 5, 2).toString());
+        assertEquals("[program, project]", unit.predictFuzzy("prgo", 2, 2).toString());
+    }
+
+    @Test
+    public void fuzzyPredictionShouldRankCloserWordsFirst() {
+        DictionaryTree unit = new DictionaryTree(0);
+        unit.insert("cat", 1);
+        unit.insert("cot", 5);
+        unit.insert("cost", 9);
+        unit.insert("dog", 10);
+
+        assertEquals("[cat, cot]", unit.predictFuzzy("cat", 10, 1).toString());
+        assertEquals("[cat, cost, cot]", unit.predictFuzzy("ca", 10, 1).toString());
+        assertEquals("[cat]", unit.predictFuzzy("cat", 10, 0).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeEditDistanceShouldBeRejected() {
+        new DictionaryTree().predictFuzzy("word", 5, -1);
+    }
+
+    @Test
+    public void metricsShouldOnlyCountWhenEnabled() throws Exception {
+        DictionaryMetrics metrics = DictionaryMetrics.get();
+        long predictions = metrics.getPredictLatency().getCount();
+        long inserts = metrics.getInsertLatency().getCount();
+
+        DictionaryTree unit = new DictionaryTree(1);
+        unit.insert("ta", 1);
+        unit.insert("tb", 2);
+        unit.insert("tc", 3);
+        unit.predict("t", 3);
+
+        if (!DictionaryMetrics.ENABLED) {
+            assertEquals(predictions, metrics.getPredictLatency().getCount());
+            assertEquals(inserts, metrics.getInsertLatency().getCount());
+            return;
+        }
+
+        // Other tests may run at the same time, so only lower bounds are certain
+        assertTrue(metrics.getPredictLatency().getCount() >= predictions + 1);
+        assertTrue(metrics.getInsertLatency().getCount() >= inserts + 3);
+        assertTrue(metrics.getPredictCandidates().getMax() >= 3);
+        CompositeData latency = (CompositeData) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(DictionaryMetrics.OBJECT_NAME), "PredictLatency");
+        assertTrue((Long) latency.get("count") >= 1);
+    }
+
+    @Test
+    public void containsShouldNotAllocate() {
+        // Needs the HotSpot extension of the thread bean to count allocated bytes
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean))
+            return;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        DictionaryTree unit = new DictionaryTree();
+        String[] words = {"word", "world", "wordy", "sword", "words", "wor"};
+        for (String word : words) {
+            unit.insert(word, word.length());
+        }
+        StringBuilder lookup = new StringBuilder("worlds");
+
+        int operations = 200000;
+        int found = 0;
+        long before = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (int i = 0; i < operations; i++) {
+            if (unit.contains(words[i % words.length]))
+                found++;
+            if (unit.contains(lookup))
+                found++;
+        }
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - before;
+
+        assertEquals(operations, found);
+        // Anything but 0 bytes per operation would add up to at least operations bytes
+        assertTrue("allocated " + allocated + " bytes", allocated < operations);
+    }
+
 }
@@ -0,0 +1,255 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.DictionaryTree;
+import src.dictTree.DurableDictionary;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class DurableDictionaryTests {
+
+    private static DictionaryTree sampleTree() {
+        DictionaryTree tree = new DictionaryTree();
+        tree.insert("cat", 10);
+        tree.insert("car", 8);
+        tree.insert("dog", 5);
+        return tree;
+    }
+
+    private static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    private static List<String> files(Path directory, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(suffix))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void changesShouldSurviveReopening() throws IOException {
+        Path directory = Files.createTempDirectory("dictionary");
+        try {
+            try (DurableDictionary unit = DurableDictionary.open(directory, sampleTree(), 1 << 20)) {
+                unit.insert("cart", 12);
+                unit.insert("cow");
+                assertTrue(unit.setPop("dog", 20));
+                assertFalse(unit.setPop("do", 20));
+                assertTrue(unit.remove("car"));
+                assertFalse(unit.remove("car"));
+            }
+
+            // The initial tree is only used for a directory without a snapshot
+            try (DurableDictionary unit = DurableDictionary.open(directory, new DictionaryTree(), 1 << 20)) {
+                assertEquals("[cart, cat, cow, dog]", unit.allWords().toString());
+                assertEquals(12, unit.getPop("cart"));
+                assertEquals(-1, unit.getPop("cow"));
+                assertEquals(20, unit.getPop("dog"));
+                assertEquals("[cart, cat, cow]", unit.predict("c", 5).toString());
+                // Only changes made since opening are counted
+                assertEquals(0, unit.records());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void aLogCutShortShouldBeReplayedUpToTheDamage() throws IOException {
+        Path directory = Files.createTempDirectory("dictionary");
+        try {
+            try (DurableDictionary unit = DurableDictionary.open(directory)) {
+                unit.insert("first", 1);
+                unit.insert("second", 2);
+                unit.insert("third", 3);
+            }
+
+            // As if the process died while the last record was being written
+            Path log = directory.resolve(files(directory, ".log").get(0));
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 2);
+            }
+
+            try (DurableDictionary unit = DurableDictionary.open(directory)) {
+                assertEquals("[first, second]", unit.allWords().toString());
+                // Writing goes on in a new log after the damaged one
+                unit.insert("fourth", 4);
+            }
+            try (DurableDictionary unit = DurableDictionary.open(directory)) {
+                assertEquals("[first, fourth, second]", unit.allWords().toString());
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void compactionShouldFoldTheLogIntoASnapshot() throws IOException {
+        Path directory = Files.createTempDirectory("dictionary");
+        try {
+            try (DurableDictionary unit = DurableDictionary.open(directory, sampleTree(), 1 << 20)) {
+                unit.insert("cart", 12);
+                unit.compact();
+                unit.remove("cat");
+                unit.compact();
+                unit.insert("cow", 3);
+
+                // The latest snapshot and the log written since
+                assertEquals(1, files(directory, ".snapshot").size());
+                assertEquals(1, files(directory, ".log").size());
+            }
+
+            try (DurableDictionary unit = DurableDictionary.open(directory)) {
+                assertEquals("[car, cart, cow, dog]", unit.allWords().toString());
+                assertEquals(12, unit.getPop("cart"));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    public void concurrentWritersShouldShareCommits() throws Exception {
+        Path directory = Files.createTempDirectory("dictionary");
+        try {
+            DictionaryTree expected = new DictionaryTree();
+            // A small log, so it is compacted in the background while words come in
+            try (DurableDictionary unit = DurableDictionary.open(directory, new DictionaryTree(), 4096)) {
+                List<Thread> threads = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    int thread = t;
+                    threads.add(new Thread(() -> {
+                        for (int i = 0; i < 300; i++) {
+                            unit.insert("word" + thread + "-" + i, i);
+                            if (i % 3 == 2)
+                                unit.remove("word" + thread + "-" + (i - 1));
+                        }
+                    }));
+                    for (int i = 0; i < 300; i++) {
+                        if (i % 3 != 1)
+                            expected.insert("word" + t + "-" + i, i);
+                    }
+                }
+                threads.forEach(Thread::start);
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                assertEquals(8 * 400, unit.records());
+                assertTrue(unit.commits() + " commits", unit.commits() < unit.records());
+            }
+
+            try (DurableDictionary unit = DurableDictionary.open(directory)) {
+                assertEquals(expected.allWords(), unit.allWords());
+                for (String word : expected.allWords()) {
+                    assertEquals(expected.getPop(word), unit.getPop(word));
+                }
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void closingWhileWritersCrossTheCompactionSizeShouldKeepEveryChange() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            Path directory = Files.createTempDirectory("dictionary");
+            try {
+                List<Set<String>> written = new ArrayList<>();
+                // Every commit is past the compaction size, so close() races a scheduled compaction
+                DurableDictionary unit = DurableDictionary.open(directory, new DictionaryTree(), 1);
+                List<Thread> threads = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    int thread = t;
+                    Set<String> words = new HashSet<>();
+                    written.add(words);
+                    threads.add(new Thread(() -> {
+                        try {
+                            for (int i = 0; ; i++) {
+                                unit.insert("word" + thread + "-" + i, i);
+                                words.add("word" + thread + "-" + i);
+                            }
+                        } catch (IllegalStateException e) {
+                            // Closed
+                        }
+                    }));
+                }
+                threads.forEach(Thread::start);
+                Thread.sleep(20);
+                unit.close();
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                try (DurableDictionary reopened = DurableDictionary.open(directory)) {
+                    for (Set<String> words : written) {
+                        for (String word : words) {
+                            assertTrue(word, reopened.contains(word));
+                        }
+                    }
+                }
+            } finally {
+                delete(directory);
+            }
+        }
+    }
+
+    @Test
+    public void batchedPopularityChangesShouldShareOneCommit() throws IOException {
+        Path directory = Files.createTempDirectory("dictionary");
+        try {
+            try (DurableDictionary unit = DurableDictionary.open(directory, sampleTree(), 1 << 20)) {
+                Map<String, Integer> amounts = new HashMap<>();
+                amounts.put("cat", 5);
+                amounts.put("dog", -2);
+                amounts.put("cow", 4);
+                unit.addPops(amounts);
+
+                assertEquals(3, unit.records());
+                assertEquals(1, unit.commits());
+            }
+
+            try (DurableDictionary unit = DurableDictionary.open(directory)) {
+                assertEquals(15, unit.getPop("cat"));
+                assertEquals(3, unit.getPop("dog"));
+                assertEquals(4, unit.getPop("cow"));
+            }
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void aClosedDictionaryShouldNotChange() throws IOException {
+        Path directory = Files.createTempDirectory("dictionary");
+        try {
+            DurableDictionary unit = DurableDictionary.open(directory);
+            unit.close();
+            unit.insert("late", 1);
+        } finally {
+            delete(directory);
+        }
+    }
+}
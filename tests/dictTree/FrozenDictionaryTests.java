@@ -0,0 +1,109 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.DictionaryTree;
+import src.dictTree.FrozenDictionary;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class FrozenDictionaryTests {
+
+    private static DictionaryTree sampleTree() {
+        DictionaryTree tree = new DictionaryTree(2);
+        String[] words = {"car", "cart", "carton", "cat", "catalog", "cattle", "cab", "cabin", "dog", "do"};
+        for (int i = 0; i < words.length; i++) {
+            tree.insert(words[i], i % 4);
+        }
+        tree.insert("cable");
+        return tree;
+    }
+
+    @Test
+    public void sizeShouldMatchTheTree() {
+        DictionaryTree tree = sampleTree();
+        assertEquals(tree.size(), tree.freeze().size());
+    }
+
+    @Test
+    public void itShouldContainTheWordsOfTheTree() {
+        FrozenDictionary unit = sampleTree().freeze();
+        assertTrue(unit.contains("cart"));
+        assertTrue(unit.contains("cable"));
+        assertFalse(unit.contains("ca"));
+        assertFalse(unit.contains("cartons"));
+        assertFalse(unit.contains(""));
+    }
+
+    @Test
+    public void allWordsShouldMatchTheTree() {
+        DictionaryTree tree = sampleTree();
+        assertEquals(tree.allWords(), tree.freeze().allWords());
+    }
+
+    @Test
+    public void predictShouldMatchTheTree() {
+        DictionaryTree tree = sampleTree();
+        FrozenDictionary unit = tree.freeze();
+
+        for (String prefix : new String[]{"", "c", "ca", "car", "cat", "cab", "d", "do", "x"}) {
+            for (int n = 0; n <= 12; n++) {
+                assertEquals(tree.predict(prefix, n), unit.predict(prefix, n));
+            }
+        }
+    }
+
+    @Test
+    public void laterChangesShouldNotAffectTheFrozenDictionary() {
+        DictionaryTree tree = sampleTree();
+        FrozenDictionary unit = tree.freeze();
+        tree.insert("cow", 10);
+        tree.remove("cart");
+
+        assertFalse(unit.contains("cow"));
+        assertTrue(unit.contains("cart"));
+    }
+
+    @Test
+    public void anEmptyTreeShouldFreeze() {
+        FrozenDictionary unit = new DictionaryTree().freeze();
+        assertEquals(1, unit.size());
+        assertTrue(unit.allWords().isEmpty());
+        assertTrue(unit.predict("a", 5).isEmpty());
+    }
+
+    @Test
+    public void aMappedSnapshotShouldMatchTheTree() throws IOException {
+        DictionaryTree tree = sampleTree();
+        Path file = Files.createTempFile("dictionary", ".snapshot");
+        try {
+            tree.freeze().write(file);
+            FrozenDictionary unit = FrozenDictionary.map(file);
+
+            assertEquals(tree.size(), unit.size());
+            assertEquals(tree.allWords(), unit.allWords());
+            assertTrue(unit.contains("catalog"));
+            assertFalse(unit.contains("cata"));
+            for (String prefix : new String[]{"c", "ca", "cat", "do", "x"}) {
+                assertEquals(tree.predict(prefix, 4), unit.predict(prefix, 4));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void mappingAFileWhichIsNotASnapshotShouldFail() throws IOException {
+        Path file = Files.createTempFile("dictionary", ".snapshot");
+        try {
+            Files.write(file, "the\nof\nand\n".getBytes("UTF-8"));
+            FrozenDictionary.map(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+}
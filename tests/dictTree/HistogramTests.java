@@ -0,0 +1,50 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.Histogram;
+
+import static org.junit.Assert.*;
+
+public class HistogramTests {
+
+    @Test
+    public void smallValuesShouldBeExact() {
+        Histogram unit = new Histogram();
+        for (int i = 1; i <= 10; i++) {
+            unit.record(i);
+        }
+
+        Histogram.Snapshot snapshot = unit.snapshot();
+        assertEquals(10, snapshot.getCount());
+        assertEquals(5.5, snapshot.getMean(), 1e-9);
+        assertEquals(5, snapshot.getP50());
+        assertEquals(10, snapshot.getP99());
+        assertEquals(10, snapshot.getMax());
+    }
+
+    @Test
+    public void percentilesShouldBeWithinAnEighth() {
+        Histogram unit = new Histogram();
+        for (long i = 1; i <= 100000; i++) {
+            unit.record(i * 1000);
+        }
+
+        Histogram.Snapshot snapshot = unit.snapshot();
+        assertEquals(50000000, snapshot.getP50(), 50000000 / 8.0);
+        assertEquals(99000000, snapshot.getP99(), 99000000 / 8.0);
+        assertEquals(99900000, snapshot.getP999(), 99900000 / 8.0);
+        assertEquals(100000000, snapshot.getMax());
+        assertTrue(snapshot.getP999() <= snapshot.getMax());
+    }
+
+    @Test
+    public void resetShouldForgetEverything() {
+        Histogram unit = new Histogram();
+        unit.record(Long.MAX_VALUE);
+        unit.record(-5);
+        assertEquals(Long.MAX_VALUE, unit.snapshot().getP99());
+
+        unit.reset();
+        assertEquals("count=0 mean=0.0 p50=0 p99=0 p999=0 max=0", unit.snapshot().toString());
+    }
+}
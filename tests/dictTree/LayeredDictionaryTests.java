@@ -0,0 +1,139 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.DictionaryTree;
+import src.dictTree.LayeredDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LayeredDictionaryTests {
+
+    private static DictionaryTree sampleBase() {
+        DictionaryTree base = new DictionaryTree();
+        base.insert("car", 8);
+        base.insert("cart", 6);
+        base.insert("cat", 10);
+        base.insert("cow", 4);
+        base.insert("dog", 5);
+        return base;
+    }
+
+    @Test
+    public void overridesAndTombstonesShouldShapePredictions() {
+        DictionaryTree base = sampleBase();
+        LayeredDictionary unit = new LayeredDictionary(base);
+
+        unit.insert("cab", 7);
+        assertTrue(unit.setPop("cow", 20));
+        assertTrue(unit.remove("cat"));
+        assertFalse(unit.remove("cat"));
+        unit.addPop("car", 1);
+
+        assertEquals("[cow, car, cab, cart]", unit.predict("c", 5).toString());
+        assertEquals("[car, cart]", unit.predict("car", 5).toString());
+        assertEquals("[cow, car]", unit.predict("c", 2).toString());
+        assertEquals("[]", unit.predict("cat", 5).toString());
+        assertEquals("[]", unit.predict("", 5).toString());
+        assertFalse(unit.contains("cat"));
+        assertEquals(-1, unit.getPop("cat"));
+        assertEquals(9, unit.getPop("car"));
+        assertEquals("[cab, car, cart, cow, dog]", unit.allWords().toString());
+        assertEquals(4, unit.deltaSize());
+
+        // Inserting a removed word takes the tombstone away
+        unit.insert("cat");
+        assertEquals(-1, unit.getPop("cat"));
+        assertTrue(unit.contains("cat"));
+        assertEquals(4, unit.deltaSize());
+
+        // The base is shared and never changed
+        assertEquals("[cat, car, cart, cow]", base.predict("c", 5).toString());
+        assertEquals(4, base.getPop("cow"));
+    }
+
+    @Test
+    public void usersShouldNotSeeEachOthersWords() {
+        DictionaryTree base = sampleBase();
+        LayeredDictionary first = new LayeredDictionary(base);
+        LayeredDictionary second = new LayeredDictionary(base);
+
+        first.insert("caravan", 30);
+        second.remove("car");
+
+        assertEquals("[caravan, cat]", first.predict("ca", 2).toString());
+        assertEquals("[cat, cart]", second.predict("ca", 2).toString());
+        assertTrue(first.contains("car"));
+        assertFalse(second.contains("caravan"));
+    }
+
+    @Test
+    public void predictShouldAskTheBaseForMoreWhenItsWordsAreHidden() {
+        DictionaryTree base = new DictionaryTree();
+        for (int i = 0; i < 100; i++) {
+            base.insert("word" + i, 1000 - i);
+        }
+        LayeredDictionary unit = new LayeredDictionary(base);
+        // The 30 most popular base words are hidden
+        for (int i = 0; i < 30; i++) {
+            if (i % 2 == 0)
+                unit.remove("word" + i);
+            else
+                unit.setPop("word" + i, 0);
+        }
+
+        assertEquals("[word30, word31, word32]", unit.predict("word", 3).toString());
+    }
+
+    @Test
+    public void itShouldMatchACopyOfTheBaseWithTheSameChanges() {
+        Random random = new Random(24);
+        DictionaryTree base = new DictionaryTree();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            String word = Integer.toString(random.nextInt(1 << 16), 4 + random.nextInt(5));
+            words.add(word);
+            base.insert(word, random.nextInt(50));
+        }
+
+        DictionaryTree expected = new DictionaryTree();
+        base.words().forEach(word -> expected.insert(word, base.getPop(word)));
+        LayeredDictionary unit = new LayeredDictionary(base);
+        for (int i = 0; i < 600; i++) {
+            String word = random.nextBoolean() ? words.get(random.nextInt(words.size()))
+                    : Integer.toString(random.nextInt(1 << 16), 4 + random.nextInt(5));
+            int popularity = random.nextInt(50);
+            switch (random.nextInt(4)) {
+                case 0:
+                    expected.insert(word, popularity);
+                    unit.insert(word, popularity);
+                    break;
+                case 1:
+                    if (expected.contains(word))
+                        expected.insert(word, popularity);
+                    assertEquals(expected.contains(word), unit.setPop(word, popularity));
+                    break;
+                case 2:
+                    expected.insert(word, expected.contains(word) ? expected.getPop(word) + popularity : popularity);
+                    unit.addPop(word, popularity);
+                    break;
+                default:
+                    assertEquals(expected.contains(word), unit.remove(word));
+                    expected.remove(word);
+            }
+        }
+
+        assertEquals(expected.allWords(), unit.allWords());
+        for (int i = 0; i < 2000; i++) {
+            String word = words.get(random.nextInt(words.size()));
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            assertEquals(expected.contains(word), unit.contains(word));
+            assertEquals(expected.getPop(word), unit.getPop(word));
+            assertEquals(prefix, expected.predict(prefix, 5), unit.predict(prefix, 5));
+            assertEquals(prefix, expected.predict(prefix, 15), unit.predict(prefix, 15));
+        }
+    }
+}
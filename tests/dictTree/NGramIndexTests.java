@@ -0,0 +1,125 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.NGramIndex;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NGramIndexTests {
+
+    private static final String CORPUS = "The cat sat on the mat. The cat ate the fish! "
+            + "The dog sat on the log. A cat sat on the sofa? The cat sat down.";
+
+    private static NGramIndex index(String corpus, int topK) throws IOException {
+        return NGramIndex.build(new StringReader(corpus), topK);
+    }
+
+    @Test
+    public void itShouldCountWordsAndNGrams() throws IOException {
+        NGramIndex unit = index(CORPUS, 10);
+
+        assertEquals(12, unit.wordCount());
+        assertEquals(8, unit.count("the"));
+        assertEquals(0, unit.count("The"));
+        // No n-gram spans two sentences, e.g. "mat the"
+        assertEquals(14, unit.bigramCount());
+        assertEquals(13, unit.trigramCount());
+        assertTrue(unit.indexBytes() > 0);
+        assertEquals(unit.count("cat"), unit.dictionary().getPop("cat"));
+    }
+
+    @Test
+    public void theLastTwoWordsShouldComeFirst() throws IOException {
+        NGramIndex unit = index(CORPUS, 10);
+
+        // "cat" follows "the" 3 times, the others once, alphabetically
+        assertEquals("[cat, dog, fish, log, mat]", unit.predictNext("the", 5).toString());
+        // "sat on the" leads to mat, log and sofa; then the successors of "the"
+        assertEquals("[log, mat, sofa, cat, dog]", unit.predictNext("The dog SAT ON THE", 5).toString());
+        // Backs off to the most frequent words for an unknown context
+        assertEquals("[the, cat, sat]", unit.predictNext("zebra", 3).toString());
+        assertEquals("[the, cat, sat]", unit.predictNext("", 3).toString());
+        // A new sentence starts without context
+        assertEquals("[the, cat, sat]", unit.predictNext("the cat.", 3).toString());
+    }
+
+    @Test
+    public void onlyTheTopSuccessorsShouldBeKept() throws IOException {
+        NGramIndex unit = index(CORPUS, 2);
+
+        assertEquals("[cat, dog, the]", unit.predictNext("the", 3).toString());
+        assertTrue(unit.storedSuccessors() < index(CORPUS, 10).storedSuccessors());
+    }
+
+    @Test
+    public void suggestShouldCompleteTheWordAndPredictTheNextOne() throws IOException {
+        NGramIndex unit = index(CORPUS, 10);
+
+        NGramIndex.Suggestions suggestions = unit.suggest("the cat s", 3);
+        assertEquals("[sat, sofa]", suggestions.getCompletions().toString());
+        assertEquals("[on, down, the]", suggestions.getNextWords().toString());
+
+        // Completions the context does not predict come from the dictionary
+        assertEquals("[ate, a]", unit.suggest("the cat a", 3).getCompletions().toString());
+
+        // After a space there is nothing to complete
+        suggestions = unit.suggest("the cat ", 3);
+        assertTrue(suggestions.getCompletions().isEmpty());
+        assertEquals("[sat, ate, the]", suggestions.getNextWords().toString());
+    }
+
+    @Test
+    public void successorsShouldMatchCountingTheCorpus() throws IOException {
+        Random random = new Random(25);
+        String[] vocabulary = new String[60];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = Integer.toString(i * 7919, 36);
+        }
+        List<String> corpus = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            // Skewed, so counts differ
+            String word = vocabulary[(int) (vocabulary.length * Math.pow(random.nextDouble(), 3))];
+            corpus.add(word);
+            text.append(word).append(' ');
+        }
+        NGramIndex unit = index(text.toString(), 4);
+
+        for (int trial = 0; trial < 50; trial++) {
+            String previous = vocabulary[random.nextInt(vocabulary.length)];
+            int[] followers = new int[vocabulary.length];
+            for (int i = 1; i < corpus.size(); i++) {
+                if (corpus.get(i - 1).equals(previous))
+                    followers[indexOf(vocabulary, corpus.get(i))]++;
+            }
+
+            List<String> predicted = unit.predictNext(previous, 4);
+            for (int i = 1; i < predicted.size(); i++) {
+                int before = followers[indexOf(vocabulary, predicted.get(i - 1))];
+                int after = followers[indexOf(vocabulary, predicted.get(i))];
+                assertTrue(previous + " " + predicted, before > after
+                        || (before == after && predicted.get(i - 1).compareTo(predicted.get(i)) < 0));
+            }
+            // Nothing left out is more frequent than the last word predicted
+            int last = followers[indexOf(vocabulary, predicted.get(predicted.size() - 1))];
+            for (int w = 0; w < vocabulary.length; w++) {
+                if (!predicted.contains(vocabulary[w]))
+                    assertTrue(followers[w] <= last);
+            }
+        }
+    }
+
+    private static int indexOf(String[] words, String word) {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals(word))
+                return i;
+        }
+        return -1;
+    }
+}
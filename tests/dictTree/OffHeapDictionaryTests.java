@@ -0,0 +1,147 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.DictionaryTree;
+import src.dictTree.OffHeapDictionary;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class OffHeapDictionaryTests {
+
+    // The number of words LargeDictionary loads into a 64 MB heap
+    // The default keeps the unit tests fast; -Doffheap.words=20000000 loads the 20 million
+    // words the dictionary was sized for, which takes about 2 GB of direct memory
+    private static final int LARGE_WORDS = Integer.getInteger("offheap.words", 500_000);
+
+    @Test
+    public void itShouldBehaveLikeADictionaryTree() {
+        OffHeapDictionary unit = new OffHeapDictionary();
+        unit.insert("word", 1);
+        unit.insert("wordA", 6);
+        unit.insert("wordB", 3);
+        unit.insert("wordCD", 2);
+        unit.insert("other");
+
+        assertTrue(unit.contains("wordA"));
+        assertFalse(unit.contains("wor"));
+        assertFalse(unit.contains("wordC"));
+        assertEquals(6, unit.getPop("wordA"));
+        assertEquals(-1, unit.getPop("other"));
+        assertEquals(-1, unit.getPop("nothing"));
+        assertEquals("[word, wordA, wordB]", unit.predict("word", 3).toString());
+        assertEquals("[wordA, wordB, wordCD, word]", unit.predict("wo", 5).toString());
+        assertEquals("[]", unit.predict("", 5).toString());
+        assertEquals("[other, word, wordA, wordB, wordCD]", unit.allWords().toString());
+        assertEquals(14, unit.size());
+    }
+
+    @Test
+    public void itShouldMatchATreeWhilePopularitiesChange() {
+        Random random = new Random(21);
+        DictionaryTree expected = new DictionaryTree(3);
+        OffHeapDictionary unit = new OffHeapDictionary();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            // Popularities of words inserted again go up or down
+            String word = i % 4 == 3 ? words.get(random.nextInt(words.size()))
+                    : Integer.toString(random.nextInt(1 << 30), 5 + random.nextInt(4));
+            // Few distinct popularities, so many are equal
+            int popularity = random.nextInt(30) - 5;
+            words.add(word);
+            expected.insert(word, popularity);
+            unit.insert(word, popularity);
+        }
+
+        // More nodes than fit in one chunk
+        assertEquals(expected.size(), unit.size());
+        assertTrue(unit.size() > 65536);
+        assertEquals(expected.allWords(), unit.allWords());
+        for (int i = 0; i < 2000; i++) {
+            String word = i % 2 == 0 ? words.get(random.nextInt(words.size()))
+                    : Integer.toString(random.nextInt(1 << 30), 5 + random.nextInt(4));
+            String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+            assertEquals(expected.contains(word), unit.contains(word));
+            assertEquals(expected.getPop(word), unit.getPop(word));
+            assertEquals(prefix, expected.predict(prefix, 3), unit.predict(prefix, 3));
+            assertEquals(prefix, expected.predict(prefix, 20), unit.predict(prefix, 20));
+        }
+    }
+
+    @Test
+    public void largeDictionariesShouldFitASmallHeap() throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        // A word takes about 32 bytes off the heap; the buffers grow by doubling, so allow 100
+        long directBytes = Math.max(256L << 20, LARGE_WORDS * 100L);
+        Process process = new ProcessBuilder(java, "-Xmx64m", "-XX:MaxDirectMemorySize=" + directBytes,
+                "-cp", System.getProperty("java.class.path"), LargeDictionary.class.getName(),
+                Integer.toString(LARGE_WORDS))
+                .redirectErrorStream(true)
+                .start();
+
+        List<String> output;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                StandardCharsets.UTF_8))) {
+            output = in.lines().collect(Collectors.toList());
+        }
+
+        assertEquals(String.join("\n", output), 0, process.waitFor());
+        assertTrue(String.join("\n", output), output.get(output.size() - 1).startsWith("ok"));
+    }
+
+    /**
+     * @return the number-th of the synthetic words, 6 letters each, in alphabetical
+     * order of number
+     */
+    static String syntheticWord(long number) {
+        long letters = number * 15;
+        char[] word = new char[6];
+        for (int i = 5; i >= 0; i--) {
+            word[i] = (char) ('a' + letters % 26);
+            letters /= 26;
+        }
+        return new String(word);
+    }
+
+    /**
+     * Loads the given number of synthetic words, checks some of them and prints
+     * "ok" with the sizes. Run by {@link #largeDictionariesShouldFitASmallHeap()}
+     * with a heap of 64 MB.
+     */
+    public static class LargeDictionary {
+
+        public static void main(String[] args) {
+            int words = Integer.parseInt(args[0]);
+            OffHeapDictionary dictionary = new OffHeapDictionary();
+            for (int i = 0; i < words; i++) {
+                dictionary.insert(syntheticWord(i), (int) (i * 31L % 100003));
+            }
+
+            for (int i = 0; i < words; i += 9973) {
+                if (!dictionary.contains(syntheticWord(i)) || dictionary.getPop(syntheticWord(i)) != i * 31L % 100003)
+                    throw new AssertionError("Lost " + syntheticWord(i));
+            }
+            List<String> predicted = dictionary.predict(syntheticWord(words / 2).substring(0, 3), 5);
+            for (int i = 1; i < predicted.size(); i++) {
+                if (dictionary.getPop(predicted.get(i - 1)) < dictionary.getPop(predicted.get(i)))
+                    throw new AssertionError("Out of order: " + predicted);
+            }
+
+            System.gc();
+            long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            System.out.println("ok: " + words + " words, " + dictionary.size() + " nodes, "
+                    + (dictionary.offHeapBytes() >> 20) + " MB off the heap, " + (heapUsed >> 20) + " MB on it, "
+                    + predicted);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.PopularityUpdater;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class PopularityUpdaterTests {
+
+    private static ConcurrentDictionaryTree sampleDictionary() {
+        ConcurrentDictionaryTree dictionary = new ConcurrentDictionaryTree();
+        dictionary.insert("car", 30);
+        dictionary.insert("cart", 20);
+        dictionary.insert("cat", 10);
+        return dictionary;
+    }
+
+    @Test
+    public void eventsShouldBeAppliedInBatches() {
+        ConcurrentDictionaryTree dictionary = sampleDictionary();
+        PopularityUpdater unit = new PopularityUpdater(dictionary, 3);
+
+        unit.record("cat", 15);
+        unit.record("cart");
+        assertEquals(10, dictionary.getPop("cat"));
+
+        unit.record("cat", 10);
+        assertEquals(35, dictionary.getPop("cat"));
+        assertEquals(21, dictionary.getPop("cart"));
+        assertEquals("[cat, car, cart]", dictionary.predict("ca", 3).toString());
+        assertEquals(1, unit.batches());
+        assertEquals(3, unit.events());
+    }
+
+    @Test
+    public void ingestShouldCountEveryLineAndFlush() throws IOException {
+        ConcurrentDictionaryTree dictionary = sampleDictionary();
+        PopularityUpdater unit = new PopularityUpdater(dictionary, 1000);
+
+        long read = unit.ingest(new BufferedReader(new StringReader("cat\ncab\ncat\ncab\ncab\n")));
+
+        assertEquals(5, read);
+        assertEquals(12, dictionary.getPop("cat"));
+        assertEquals(3, dictionary.getPop("cab"));
+        assertEquals(1, unit.batches());
+    }
+
+    @Test
+    public void decayShouldApplyPendingEventsFirst() {
+        ConcurrentDictionaryTree dictionary = sampleDictionary();
+        PopularityUpdater unit = new PopularityUpdater(dictionary, 1000);
+        unit.record("cat", 50);
+
+        unit.decay(0.5);
+
+        assertEquals(30, dictionary.getPop("cat"));
+        assertEquals(15, dictionary.getPop("car"));
+        assertEquals("[cat, car, cart]", dictionary.predict("ca", 3).toString());
+    }
+}
@@ -0,0 +1,148 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.DictionaryTree;
+import src.dictTree.RadixDictionaryTree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RadixDictionaryTreeTests {
+
+    @Test
+    public void insertShouldSplitLabels() {
+        RadixDictionaryTree unit = new RadixDictionaryTree();
+        unit.insert("romane", 3);
+        // The root and one node for the whole word
+        assertEquals(2, unit.size());
+
+        unit.insert("romanus", 5);
+        // "roman" is split off with "e" and "us" below it
+        assertEquals(4, unit.size());
+        unit.insert("rom", 1);
+        assertEquals(5, unit.size());
+
+        assertTrue(unit.contains("rom"));
+        assertFalse(unit.contains("ro"));
+        assertFalse(unit.contains("roman"));
+        assertFalse(unit.contains("romanes"));
+        assertEquals(5, unit.getPop("romanus"));
+        assertEquals(-1, unit.getPop("roma"));
+        assertEquals("[rom, romane, romanus]", unit.allWords().toString());
+    }
+
+    @Test
+    public void removeShouldMergeLabels() {
+        RadixDictionaryTree unit = new RadixDictionaryTree();
+        unit.insert("rom", 1);
+        unit.insert("romane", 3);
+        unit.insert("romanus", 5);
+
+        assertFalse(unit.remove("roman"));
+        assertFalse(unit.remove("romanusx"));
+        assertTrue(unit.remove("romanus"));
+        // "roman" is left with one child and merged with it into "ane"
+        assertEquals(3, unit.size());
+        assertTrue(unit.remove("rom"));
+        // "rom" too, so "romane" is a single node again
+        assertEquals(2, unit.size());
+        assertEquals(3, unit.getPop("romane"));
+        assertFalse(unit.remove("rom"));
+
+        assertTrue(unit.remove("romane"));
+        assertEquals(1, unit.size());
+        assertEquals("[]", unit.allWords().toString());
+        assertEquals("[]", unit.predict("r", 3).toString());
+    }
+
+    @Test
+    public void predictShouldWorkWithinLabels() {
+        RadixDictionaryTree unit = new RadixDictionaryTree();
+        unit.insert("word", 1);
+        unit.insert("wordA", 6);
+        unit.insert("wordB", 3);
+        unit.insert("wordCD", 2);
+        unit.insert("other");
+
+        assertEquals("[word, wordA, wordB]", unit.predict("word", 3).toString());
+        assertEquals("[wordA, wordB, wordCD, word]", unit.predict("wo", 5).toString());
+        assertEquals("[wordCD]", unit.predict("wordC", 5).toString());
+        assertEquals("[other]", unit.predict("oth", 5).toString());
+        assertEquals("[]", unit.predict("ox", 5).toString());
+        assertEquals("[]", unit.predict("otherwise", 5).toString());
+        assertEquals("[]", unit.predict("", 5).toString());
+    }
+
+    @Test
+    public void itShouldMatchATreeWhileWordsComeAndGo() {
+        Random random = new Random(22);
+        DictionaryTree expected = new DictionaryTree(3);
+        RadixDictionaryTree unit = new RadixDictionaryTree();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            String word = i % 3 == 2 ? words.get(random.nextInt(words.size()))
+                    : Integer.toString(random.nextInt(1 << 20), 3 + random.nextInt(8));
+            if (i % 5 == 4) {
+                // The tree's remove tells whether its node went, this one whether the word was there
+                boolean contained = expected.contains(word);
+                expected.remove(word);
+                assertEquals(word, contained, unit.remove(word));
+            } else {
+                // Few distinct popularities, so many are equal
+                int popularity = random.nextInt(30) - 5;
+                expected.insert(word, popularity);
+                unit.insert(word, popularity);
+                words.add(word);
+            }
+        }
+
+        assertTrue(unit.size() < expected.size());
+        assertEquals(expected.allWords(), unit.allWords());
+        assertEquals(expected.numLeaves(), unit.numLeaves());
+        assertEquals(expected.maximumBranching(), unit.maximumBranching());
+        assertEquals(expected.height(), unit.height());
+        for (int i = 0; i < 2000; i++) {
+            String word = i % 2 == 0 ? words.get(random.nextInt(words.size()))
+                    : Integer.toString(random.nextInt(1 << 20), 3 + random.nextInt(8));
+            String prefix = word.substring(0, random.nextInt(word.length() + 1));
+            assertEquals(expected.contains(word), unit.contains(word));
+            assertEquals(expected.contains(prefix), unit.contains(prefix));
+            assertEquals(expected.getPop(word), unit.getPop(word));
+            assertEquals(prefix, expected.predict(prefix, 3), unit.predict(prefix, 3));
+            assertEquals(prefix, expected.predict(prefix, 20), unit.predict(prefix, 20));
+        }
+    }
+
+    @Test
+    public void removingEveryWordShouldLeaveTheRoot() {
+        Random random = new Random(2);
+        RadixDictionaryTree unit = new RadixDictionaryTree();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            String word = Integer.toString(random.nextInt(100000), 4);
+            words.add(word);
+            unit.insert(word);
+        }
+
+        for (String word : words) {
+            unit.remove(word);
+        }
+        assertEquals(1, unit.size());
+        assertEquals(1, unit.numLeaves());
+        assertEquals(0, unit.height());
+        assertEquals(0, unit.maximumBranching());
+    }
+
+    @Test
+    public void statisticsOfAnEmptyTreeShouldMatchTheTree() {
+        DictionaryTree expected = new DictionaryTree();
+        RadixDictionaryTree unit = new RadixDictionaryTree();
+        assertEquals(expected.size(), unit.size());
+        assertEquals(expected.numLeaves(), unit.numLeaves());
+        assertEquals(expected.height(), unit.height());
+        assertEquals(expected.maximumBranching(), unit.maximumBranching());
+    }
+}
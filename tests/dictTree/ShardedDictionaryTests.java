@@ -0,0 +1,126 @@
+package tests.dictTree;
+
+import org.junit.Test;
+import src.dictTree.ConcurrentDictionaryTree;
+import src.dictTree.DictionaryShard;
+import src.dictTree.DictionaryTree;
+import src.dictTree.LocalShard;
+import src.dictTree.ShardedDictionary;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ShardedDictionaryTests {
+
+    /**
+     * Splits the words of the given tree into local shards at the given boundaries.
+     */
+    private static ShardedDictionary shard(DictionaryTree tree, List<String> boundaries) {
+        List<DictionaryShard> shards = new ArrayList<>();
+        for (int i = 0; i <= boundaries.size(); i++) {
+            DictionaryTree shard = new DictionaryTree(3);
+            tree.wordsInRange(i == 0 ? "" : boundaries.get(i - 1), i == boundaries.size() ? null : boundaries.get(i))
+                    .forEach(word -> shard.insert(word, tree.getPop(word)));
+            shards.add(new LocalShard(new ConcurrentDictionaryTree(shard)));
+        }
+        return new ShardedDictionary(boundaries, shards);
+    }
+
+    @Test
+    public void predictShouldMatchOneTree() throws IOException {
+        Random random = new Random(20);
+        DictionaryTree tree = new DictionaryTree(3);
+        for (int i = 0; i < 2000; i++) {
+            // Few distinct popularities, so ties are decided alphabetically across shards
+            tree.insert(Integer.toString(random.nextInt(5000), 5 + random.nextInt(3)), random.nextInt(20));
+        }
+
+        try (ShardedDictionary unit = shard(tree, ShardedDictionary.boundaries(tree, 5))) {
+            assertEquals(5, unit.shardCount());
+            for (String word : tree.allWords()) {
+                for (int length = 0; length <= word.length(); length++) {
+                    String prefix = word.substring(0, length);
+                    assertEquals(prefix, tree.predict(prefix, 3), unit.predict(prefix, 3));
+                    assertEquals(prefix, tree.predict(prefix, 10), unit.predict(prefix, 10));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void prefixesSpanningShardsShouldBeMerged() throws IOException {
+        DictionaryTree tree = new DictionaryTree();
+        tree.insert("car", 1);
+        tree.insert("cart", 5);
+        tree.insert("cat", 4);
+        tree.insert("cow", 9);
+        tree.insert("dog", 7);
+
+        try (ShardedDictionary unit = shard(tree, Arrays.asList("cart", "co"))) {
+            assertEquals(0, unit.shardIndex("car"));
+            assertEquals(1, unit.shardIndex("cart"));
+            assertEquals(1, unit.shardIndex("cb"));
+            assertEquals(2, unit.shardIndex("co"));
+            assertEquals(2, unit.shardIndex("dog"));
+
+            assertEquals("[cow, cart, cat, car]", unit.predict("c", 5).toString());
+            assertEquals("[car, cart]", unit.predict("car", 5).toString());
+            assertEquals("[cow, cart, cat]", unit.predict("c", 3).toString());
+            // Like in one tree, the empty prefix has no completions
+            assertEquals("[]", unit.predict("", 3).toString());
+            assertEquals("[]", unit.predict("x", 3).toString());
+        }
+    }
+
+    @Test
+    public void wordsShouldGoToTheirShard() throws IOException {
+        List<ConcurrentDictionaryTree> trees = Arrays.asList(new ConcurrentDictionaryTree(),
+                new ConcurrentDictionaryTree());
+        List<DictionaryShard> shards = Arrays.asList(new LocalShard(trees.get(0)), new LocalShard(trees.get(1)));
+
+        try (ShardedDictionary unit = new ShardedDictionary(Arrays.asList("m"), shards)) {
+            unit.insert("apple", 3);
+            unit.insert("melon", 2);
+            unit.insert("zebra", 1);
+
+            assertTrue(unit.contains("melon"));
+            assertFalse(unit.contains("mel"));
+            assertEquals("[apple]", trees.get(0).allWords().toString());
+            assertEquals("[melon, zebra]", trees.get(1).allWords().toString());
+        }
+    }
+
+    @Test
+    public void boundariesShouldSplitTheWordsEvenly() {
+        DictionaryTree tree = new DictionaryTree();
+        for (String word : new String[]{"apple", "apricot", "banana", "band", "bandana", "cherry", "date"}) {
+            tree.insert(word);
+        }
+
+        assertEquals("[]", ShardedDictionary.boundaries(tree, 1).toString());
+        // The shortest prefixes of the first words which come after the words before them
+        assertEquals("[b, banda]", ShardedDictionary.boundaries(tree, 3).toString());
+        assertEquals("[apr, b, band, banda, c, d]", ShardedDictionary.boundaries(tree, 7).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fewerWordsThanShardsShouldNotBeSplit() {
+        DictionaryTree tree = new DictionaryTree();
+        for (String word : new String[]{"apple", "banana", "cherry"}) {
+            tree.insert(word);
+        }
+        ShardedDictionary.boundaries(tree, 5);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void boundariesShouldBeInOrder() {
+        ConcurrentDictionaryTree tree = new ConcurrentDictionaryTree();
+        new ShardedDictionary(Arrays.asList("m", "c"),
+                Arrays.asList(new LocalShard(tree), new LocalShard(tree), new LocalShard(tree)));
+    }
+}